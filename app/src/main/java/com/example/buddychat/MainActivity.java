@@ -13,12 +13,14 @@ import com.bfr.buddy.ui.shared.FacialExpression;
 // Speech System
 import com.example.buddychat.chat.StatusController;
 import com.example.buddychat.network.NetworkUtils;
+import com.example.buddychat.network.NetworkMonitor;
 import com.example.buddychat.network.ws.ChatSocketManager;
 import com.example.buddychat.network.api.TokenManager;
 import com.example.buddychat.network.api.ProfileManager;
 
 // Buddy Features
 import com.example.buddychat.tts.SetupTTS;
+import com.example.buddychat.utils.metrics.StageTimer;
 import com.example.buddychat.utils.motors.HeadMotors;
 import com.example.buddychat.utils.sensors.SensorListener;
 import com.example.buddychat.utils.behavior.Emotions;
@@ -63,12 +65,14 @@ public class MainActivity extends BuddyActivity {
         initializeUI();
         wireButtons();
 
-        // Initial login in app startup
-        NetworkUtils.pingHealth();  // Test the API
-        TokenManager.initialLogin(ProfileManager::fetchProfile);
+        // Let the chat socket react to Wi-Fi drops/returns
+        NetworkMonitor.register(this);
+
+        // Initial login in app startup (warm-up, login & profile run as a small dependency graph)
+        startBackend();
 
         // WebSocket & STT callback objects (we pass the STT callback some things here like UI references, etc.)
-        sttCallbacks  = new STTCallbacks(ChatSocketManager::sendString);
+        sttCallbacks  = new STTCallbacks(ChatSocketManager::sendString, ChatSocketManager::sendPartial);
 
         // Register for updates about the chat status from StatusController
         StatusController.setListener(new StatusController.StateListener() {
@@ -79,6 +83,31 @@ public class MainActivity extends BuddyActivity {
 
     }
 
+    /** Backend startup graph; independent stages run concurrently:
+     * <pre>
+     *   warm_up       (DNS + a pooled connection; nothing waits on it)
+     *   profile_disk  (cached profile, shown right away)
+     *   login ------> profile (revalidated with its ETag, off the main thread)
+     * </pre> */
+    private void startBackend() {
+        final StageTimer timer = new StageTimer("app_startup");
+
+        timer.begin("warm_up");
+        NetworkUtils.warmUp().thenRun(() -> timer.end("warm_up"));
+
+        timer.begin("profile_disk");
+        ProfileManager.loadCached().whenComplete((p, t) -> timer.end("profile_disk"));
+
+        timer.begin("login");
+        TokenManager.initialLogin()
+                .thenComposeAsync(token -> { timer.end("login"); timer.begin("profile"); return ProfileManager.refresh(token); })
+                .whenComplete((p, t) -> {
+                    timer.end(timer.durationMs("login") < 0 ? "login" : "profile"); // a failed login never reaches "profile"
+                    if (t != null) { Log.w(TAG, String.format("%s Backend startup incomplete: %s", TAG, t.getMessage())); }
+                    Log.i(TAG, String.format("%s %s", TAG, timer.summary()));
+                });
+    }
+
     // --------------------------------------------------------------------------------
     // Called when the BuddyRobot SDK is ready
     // --------------------------------------------------------------------------------
@@ -114,6 +143,7 @@ public class MainActivity extends BuddyActivity {
 
         // Stop background timers
         TokenManager.stopTokenRefresher();
+        NetworkMonitor.unregister();
 
         // Unregister the UI listener so we don't try to update a dead screen
         StatusController.setListener(null);
@@ -15,7 +15,7 @@ public class MainApplication extends BuddyApplication {
         instance = this;
     }
 
-    // Public static method to get the context from anywhere
-    public static Context getAppContext() { return instance.getApplicationContext(); }
+    // Public static method to get the context from anywhere (null when running outside the app, e.g. JVM tests)
+    public static Context getAppContext() { return (instance != null) ? instance.getApplicationContext() : null; }
 
 }
@@ -0,0 +1,66 @@
+package com.example.buddychat.chat;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+import com.example.buddychat.stt.BuddySTT;
+import com.example.buddychat.tts.SetupTTS;
+import com.example.buddychat.utils.SpeechLanguage;
+import com.example.buddychat.utils.metrics.LatencyStats;
+
+// ================================================================================
+// Change the language Buddy listens and speaks in, without a restart
+// ================================================================================
+/** LanguageSwitcher <br>
+ * Driven by the profile's "language" field (ProfileManager) or a "language" frame from the backend (MessageHandler).
+ * Both STT tasks of every language are created and warmed at init and ReadSpeaker stays loaded, so a switch is
+ * a setSpeakerVoice() plus pausing one recognizer and resuming another. SWITCH measures the whole call; BuddySTT's
+ * own stt_language_switch runs until the new recognizer is actually listening. */
+public final class LanguageSwitcher {
+    private static final String TAG = "[DPU_LanguageSwitcher]";
+    private LanguageSwitcher() {} // no instances
+
+    // Metrics (ms for switchTo(), TTS voice + STT swap)
+    public static final LatencyStats SWITCH = new LatencyStats("language_switch", 20);
+
+    private static SpeechLanguage current = SpeechLanguage.DEFAULT; // guarded by the class lock
+
+    public static synchronized SpeechLanguage current() { return current; }
+
+    /** Switch to the language named by `tag` ("fr", "en-US", ...). Unknown or missing tags are ignored. */
+    public static void request(@Nullable String tag, String source) {
+        final SpeechLanguage lang = SpeechLanguage.fromTag(tag);
+        if (lang == null) {
+            if (tag != null) { Log.w(TAG, String.format("%s Unsupported language \"%s\" from %s", TAG, tag, source)); }
+            return;
+        }
+        switchTo(lang, source);
+    }
+
+    /** Switch both sides or neither: STT first (it can refuse a language it has no task for), then the voice, with
+     * STT switched back if the voice is refused. Returns false if Buddy stays in the current language. */
+    public static synchronized boolean switchTo(SpeechLanguage lang, String source) {
+        if (lang == current) { return true; }
+        final long t0 = System.nanoTime();
+        if (!BuddySTT.setLanguage(lang)) {
+            Log.w(TAG, String.format("%s No STT for %s (from %s); staying in %s", TAG, lang, source, current));
+            return false;
+        }
+        final long voiceMs = SetupTTS.setVoice(lang.voice);
+        if (voiceMs < 0) {
+            BuddySTT.setLanguage(current);
+            Log.w(TAG, String.format("%s Voice %s refused (from %s); staying in %s", TAG, lang.voice, source, current));
+            return false;
+        }
+        final long ms = (System.nanoTime() - t0) / 1_000_000L;
+        SWITCH.record(ms);
+
+        Log.i(TAG, String.format(Locale.US, "%s Language %s -> %s (from %s) in %d ms (voice %s %d ms) | %s",
+                TAG, current, lang, source, ms, lang.voice, voiceMs, SWITCH.summary()));
+        current = lang;
+        return true;
+    }
+
+}
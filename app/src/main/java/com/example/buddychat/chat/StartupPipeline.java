@@ -0,0 +1,115 @@
+package com.example.buddychat.chat;
+
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.example.buddychat.network.ws.ChatSocketManager;
+import com.example.buddychat.stt.BuddySTT;
+import com.example.buddychat.tts.BuddyTTS;
+import com.example.buddychat.tts.SetupTTS;
+import com.example.buddychat.utils.ThreadUtils;
+import com.example.buddychat.utils.behavior.BehaviorTasks;
+import com.example.buddychat.utils.metrics.StageTimer;
+
+// ================================================================================
+// Chat startup as a small dependency graph
+// ================================================================================
+/** StartupPipeline <br>
+ * Everything that used to run one after another in StatusController.start() now starts at once:
+ * <pre>
+ *   ws_connect ---+
+ *   wake_bi ------+--> greeting
+ *   tts_ready ----+
+ * </pre>
+ * Each stage is timed with a StageTimer so the touch-to-"Hello!" latency can be broken down in the logs.
+ * STT is started alongside but not timed here: start() returns at once, and BuddySTT's own COLD_START / RESUME
+ * probes measure how long the recognizer takes to actually listen.
+ * One instance per start() call; StatusController drops it when the chat stops. */
+final class StartupPipeline {
+    private static final String TAG = "[DPU_StartupPipeline]";
+
+    // Stage names (also used as StageTimer keys)
+    static final String WS_CONNECT = "ws_connect";
+    static final String WAKE_BI    = "wake_bi";
+    static final String TTS_READY  = "tts_ready";
+    static final String GREETING   = "greeting";
+
+    // Don't let a stuck animation or speech service hold the greeting hostage forever
+    private static final long WAKE_TIMEOUT_MS = 8_000L;
+    private static final long TTS_TIMEOUT_MS  = 5_000L;
+    private static final long TTS_POLL_MS     =   100L;
+
+    final StageTimer timer = new StageTimer("startup");
+    private final CompletableFuture<Void> wsOpen   = new CompletableFuture<>();
+    private final CompletableFuture<Void> wakeDone = new CompletableFuture<>();
+    private final CompletableFuture<Void> ttsReady = new CompletableFuture<>();
+    private volatile boolean cancelled = false;
+
+    // --------------------------------------------------------------------------------
+    // Run the graph
+    // --------------------------------------------------------------------------------
+    /** Kick off every stage; `onReady` runs on the UI thread once the socket is open, Buddy is awake, and TTS is ready. */
+    void start(final Runnable onReady) {
+        Log.i(TAG, String.format("%s Starting stages in parallel...", TAG));
+
+        // The greeting joins on the three stages it needs
+        CompletableFuture.allOf(wsOpen, wakeDone, ttsReady).thenRun(() -> ThreadUtils.runOnUiThread(() -> {
+            if (cancelled) { return; }
+            timer.begin(GREETING);
+            Log.i(TAG, String.format("%s Ready to greet: %s", TAG, timer.summary()));
+            onReady.run();
+        }));
+
+        // 1. WebSocket (async; ChatSocketManager -> ChatUICallbacks.onOpen -> StatusController.startSuccess -> onSocketOpen)
+        timer.begin(WS_CONNECT);
+        ChatSocketManager.connect();
+
+        // 2. Wake-up behavior (async; completes when the "Yawn" BI finishes, or after a timeout)
+        timer.begin(WAKE_BI);
+        BehaviorTasks.startWakeUpTask(() -> finish(WAKE_BI, wakeDone));
+        ThreadUtils.runOnUiThreadDelayed(() -> { if (!wakeDone.isDone()) { Log.w(TAG, String.format("%s Wake BI timed out", TAG)); finish(WAKE_BI, wakeDone); } }, WAKE_TIMEOUT_MS);
+
+        // 3. TTS readiness (normally already loaded in onSDKReady; reload and poll if not)
+        timer.begin(TTS_READY);
+        if (BuddyTTS.isReady()) { finish(TTS_READY, ttsReady); }
+        else                    { SetupTTS.loadTTS(); pollTts(System.nanoTime()); }
+
+        // 4. STT warm-up (nothing waits on it; the greeting's completion callback resumes it; timed by BuddySTT)
+        BuddySTT.start();
+    }
+
+    /** Called by StatusController when the socket opens (only the first open of this chat counts). */
+    void onSocketOpen() { finish(WS_CONNECT, wsOpen); }
+
+    /** Called by StatusController once the greeting has been spoken. Logs the final breakdown. */
+    void onGreetingSpoken() {
+        timer.end(GREETING);
+        Log.i(TAG, String.format("%s Startup complete: %s", TAG, timer.summary()));
+    }
+
+    /** Stop waiting; the greeting will not be played. */
+    void cancel() {
+        cancelled = true;
+        Log.i(TAG, String.format("%s Startup cancelled: %s", TAG, timer.summary()));
+    }
+
+    boolean isSocketOpen() { return wsOpen.isDone(); }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    private void finish(String stage, CompletableFuture<Void> f) {
+        timer.end(stage);
+        f.complete(null);
+    }
+
+    private void pollTts(final long startedAt) {
+        ThreadUtils.runOnUiThreadDelayed(() -> {
+            if (cancelled) { return; }
+            if (BuddyTTS.isReady() || (System.nanoTime() - startedAt) / 1_000_000L > TTS_TIMEOUT_MS) { finish(TTS_READY, ttsReady); }
+            else { pollTts(startedAt); }
+        }, TTS_POLL_MS);
+    }
+
+}
@@ -10,7 +10,12 @@ import com.bfr.buddy.ui.shared.LabialExpression;
 // Buddy Features
 import com.example.buddychat.stt.BuddySTT;
 import com.example.buddychat.tts.BuddyTTS;
+import com.example.buddychat.tts.SentenceAssembler;
+import com.example.buddychat.tts.SpeechScheduler.Policy;
+import com.example.buddychat.tts.SpeechScheduler.Priority;
+import com.example.buddychat.network.NetworkTimings;
 import com.example.buddychat.network.ws.ChatSocketManager;
+import com.example.buddychat.network.ws.ConnectionState;
 import com.example.buddychat.utils.UiUtils;
 import com.example.buddychat.utils.behavior.BehaviorTasks;
 import com.example.buddychat.utils.behavior.Emotions;
@@ -32,22 +37,23 @@ public final class StatusController {
     // Flag for if the user clicks the stop button while we are still connecting the websocket
     private static final AtomicBoolean stopRequested = new AtomicBoolean(false);
 
+    // The startup graph for the current chat (null when no chat is starting or running)
+    private static volatile StartupPipeline pipeline = null;
+
     // --------------------------------------------------------------------------------
     // Public API (start & stop)
     // --------------------------------------------------------------------------------
     /** Called by MainActivity (Button Press) or `utils.sensors.TouchSensors`.
      * Start "stage 1" -- initializes TTS & STT + WebSocket connection. If WS is succeeds it triggers start "stage 2." */
     public static void start() {
-        if (isChatActive.get()) { Log.w(TAG, String.format("%s Start called, but chat is already active. Ignoring.", TAG)); return; }
+        if (isChatActive.get() || pipeline != null) { Log.w(TAG, String.format("%s Start called, but chat is already active. Ignoring.", TAG)); return; }
         stopRequested.set(false); // Reset flag
         Log.i(TAG, String.format("%s Starting Chat Sequence (Stage 1)...", TAG));
 
-        // 1. Enable all of the "basic processes" ToDo: STT should be enabled, but it might be paused
-        //BuddyTTS.start();  // LoadTTS is already done in MainActivity, so that is always ready (just calling it for fun)
-        BuddySTT.start();  // Starting STT here ToDo: I still think I call this in other files, but going to try here again
-
-        // 2. Connect to WebSocket (async)
-        ChatSocketManager.connect(); // The SocketManager will call 'startSuccess()' if it works, or 'showError()' if it fails.
+        // WebSocket connect, wake-up BI, TTS readiness and STT warm-up all run at once; the greeting waits on the ones it needs.
+        // The SocketManager still calls 'startSuccess()' when the socket opens, or 'showError()' if it fails.
+        pipeline = new StartupPipeline();
+        pipeline.start(StatusController::playBeginning);
     }
 
     /** Stops the chat cleanly (UI button press or "stop chat" voice command). */
@@ -60,7 +66,7 @@ public final class StatusController {
     // --------------------------------------------------------------------------------
     // Callbacks (Called by ChatSocketManager)
     // --------------------------------------------------------------------------------
-    /** Stage 2: WebSocket is connected. The robot is now "Online". Wake up the robot and say hello. */
+    /** Stage 2: WebSocket is connected. The robot is now "Online"; the greeting plays once Buddy is also awake and TTS is ready. */
     public static void startSuccess() {
         // GATEKEEPER CHECK: Immediately kill the socket we just opened
         if (stopRequested.get()) {
@@ -68,11 +74,28 @@ public final class StatusController {
             ChatSocketManager.endChat();
             return;
         }
-        // Successfully start the websocket connection; handle the robots startup
+
+        // A reconnect mid-chat: the conversation carries on, so no toast and no second greeting
+        final StartupPipeline p = pipeline;
+        if (p == null || p.isSocketOpen()) { Log.i(TAG, String.format("%s WebSocket reconnected.", TAG)); return; }
+
+        // Successfully start the websocket connection; the wake-up behavior is already running
         Log.i(TAG, String.format("%s WebSocket Connected. Entering Stage 2 (Wake Up).", TAG ));
         UiUtils.showToast("Chat Connected!");
         updateState(true);
-        playBeginning(); // Play "Wake Up" behavior
+        p.onSocketOpen();
+    }
+
+    /** Called on every WebSocket lifecycle transition. Reconnects are handled by ChatSocketManager; we only surface them. */
+    public static void onConnectionStateChanged(ConnectionState state) {
+        Log.d(TAG, String.format("%s Connection state -> %s (chatActive=%s)", TAG, state, isChatActive.get()));
+        if (!isChatActive.get()) { return; } // startup failures are reported through showError()
+
+        switch (state) {
+            case DEGRADED    : Log.w(TAG, String.format("%s Network dropped under an active chat", TAG)); break;
+            case BACKING_OFF : UiUtils.showToast("Connection lost, reconnecting..."); break;
+            default          : break;
+        }
     }
 
     /** Called if the connection fails (after retries). Log error & shutdown. */
@@ -100,29 +123,46 @@ public final class StatusController {
         boolean wasAwake = isChatActive.get();
         updateState(false); // Mark as offline immediately
 
+        // Abandon the startup graph (if it is still waiting, the greeting never plays)
+        final StartupPipeline p = pipeline;
+        pipeline = null;
+        if (p != null) { p.cancel(); }
+
         // 2. Kill the Network -- ToDo: Do I need to guard for if the chat wasn't active?
         ChatSocketManager.endChat(); // Sends "end_chat" JSON and closes socket
+        SentenceAssembler.reset();   // Drop any streamed sentences that haven't been spoken yet
+        NetworkTimings.dump();       // Log this session's network phase percentiles
+        BuddySTT.dumpStats();        // ...and how each STT engine did
+        TurnTracer.abandon("chat ended");
+        TurnTracer.dump();           // ...and where each turn's time went
+        BuddyTTS.dumpStats();        // ...and what the speech scheduler did with each utterance
 
         // 3. If we were awake, be polite before dying. If we weren't awake (e.g., error during startup), just ensure the sleep pose is held.
+        //    (The wake-up BI starts in parallel with the connection now, so it may already be running.)
         if (wasAwake) { UiUtils.showToast("Chat ended, Goodbye!"); playEnding(); }
-        else          { Log.d(TAG, String.format("%s Robot was not active, skipping goodbye animation.", TAG)); }
+        else {
+            Log.d(TAG, String.format("%s Robot was not active, skipping goodbye animation.", TAG));
+            if (p != null) { Emotions.setMood(FacialExpression.TIRED); BehaviorTasks.startSleepTask(); }
+        }
     }
 
 
     // --------------------------------------------------------------------------------
     // Behavior Utilities (for start/end) (handles start & pause/stop of STT+TTS)
     // --------------------------------------------------------------------------------
-    /** Play wakeup animation, say initial message, & start speech-to-text. */
+    /** Say the initial message & start speech-to-text. Runs on the UI thread once StartupPipeline has the socket open, Buddy awake, and TTS ready. */
     private static void playBeginning() {
+        final StartupPipeline p = pipeline;
+        if (p == null || stopRequested.get()) { return; } // stopped while the stages were finishing
         Log.i(TAG, String.format("%s --- >>> Playing beginning behavior <<< ---", TAG));
         BuddyTTS.start();
+        Emotions.setMood(FacialExpression.SURPRISED, 3_000L);
 
-        // Wake Buddy up from the "SLEEP" BI
-        BehaviorTasks.startWakeUpTask(() -> {
-            Emotions.setMood(FacialExpression.SURPRISED, 3_000L);
-
-            // Say Hello & start STT -- ToDo: Should I use "speak happy" here?
-            BuddyTTS.speak("Hello! How are you doing today?", LabialExpression.SPEAK_HAPPY, BuddySTT::start);
+        // Say Hello & start STT -- ToDo: Should I use "speak happy" here?
+        BuddyTTS.speak("Hello! How are you doing today?", LabialExpression.SPEAK_HAPPY, Priority.SYSTEM, Policy.QUEUE, outcome -> {
+            if (pipeline != p) { return; } // the chat ended (playEnding() cut the greeting off)
+            p.onGreetingSpoken();
+            BuddySTT.start();
         });
     }
 
@@ -130,8 +170,10 @@ public final class StatusController {
     private static void playEnding() {
         Log.i(TAG, String.format("%s --- >>> Playing ending behavior <<< --- ", TAG));
 
-        // Say "goodbye" before doing the sleep animation
-        BuddyTTS.speak("Okay, thank you for talking today!", () -> {
+        // Say "goodbye" before doing the sleep animation. Stop first: preempting only cuts off the reply being spoken,
+        // and a queued reply would otherwise start after the goodbye and be cut off by the stop() below
+        BuddyTTS.stop();
+        BuddyTTS.speak("Okay, thank you for talking today!", null, Priority.SYSTEM, Policy.QUEUE, outcome -> {
             Emotions.setMood(FacialExpression.TIRED);
 
             // Toggle STT+TTS off
@@ -0,0 +1,141 @@
+package com.example.buddychat.chat;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+
+import com.example.buddychat.network.ws.Heartbeat;
+import com.example.buddychat.utils.metrics.LatencyStats;
+
+// ================================================================================
+// End-to-end timing of one conversational turn
+// ================================================================================
+/** TurnTracer <br>
+ * A turn starts when STT hands over a final utterance (begin() gives it an id, which ChatSocketManager sends
+ * along as "turn_id") and ends when Buddy has finished speaking the reply. Each hop marks its stage once: <ul>
+ *     <li> STT_FINAL   -- STTCallbacks has the merged utterance </li>
+ *     <li> WS_SEND     -- the transcription was written to the socket (late if it sat in the queue during a reconnect) </li>
+ *     <li> FIRST_REPLY -- the first llm_response / accepted llm_delta arrived (network + backend think time) </li>
+ *     <li> TTS_START   -- BuddyTTS started the first sentence </li>
+ *     <li> TTS_END     -- the last sentence finished; the turn is closed and its breakdown logged </li>
+ * </ul>
+ * Each stage's duration runs from the previous stage that was marked. A stage over its budget (SLO, see
+ * setBudget) is logged as a warning naming the stage, so a slow turn points at the hop to blame. The heartbeat
+ * RTT is logged next to FIRST_REPLY to tell a slow link from a slow backend. */
+public final class TurnTracer {
+    private static final String TAG = "[DPU_TurnTracer]";
+    private TurnTracer() {} // no instances
+
+    /** Stages in order, with their default budget in ms (0 = no budget). */
+    public enum Stage {
+        STT_FINAL(0), WS_SEND(250), FIRST_REPLY(2_000), TTS_START(600), TTS_END(0);
+        final long defaultBudgetMs;
+        Stage(long budgetMs) { this.defaultBudgetMs = budgetMs; }
+    }
+
+    // Configuration (ms)
+    private static final EnumMap<Stage, Long> BUDGET = new EnumMap<>(Stage.class);
+    private static long responseBudgetMs = 3_000L; // STT_FINAL -> TTS_START, what the user perceives as "Buddy is slow"
+    static { for (Stage s : Stage.values()) { BUDGET.put(s, s.defaultBudgetMs); } }
+
+    // Metrics (ms), one window per stage plus the perceived response time
+    private static final EnumMap<Stage, LatencyStats> STAGES = new EnumMap<>(Stage.class);
+    static { for (Stage s : Stage.values()) { STAGES.put(s, new LatencyStats("turn_" + s.name().toLowerCase(Locale.ROOT), 50)); } }
+    public  static final LatencyStats RESPONSE = new LatencyStats("turn_response", 50);
+
+    // Current turn (guarded by the class lock)
+    private static long   counter   = 0;
+    private static String turnId    = null;
+    private static final long[] marks = new long[Stage.values().length]; // nanoTime per stage, 0 = not yet
+    private static long   completed = 0, abandoned = 0, overBudget = 0;
+
+    // --------------------------------------------------------------------------------
+    // Configuration
+    // --------------------------------------------------------------------------------
+    /** Budget for the time from the previous stage to `stage` (0 disables the warning). */
+    public static synchronized void setBudget(Stage stage, long ms) { BUDGET.put(stage, Math.max(0L, ms)); }
+
+    /** Budget for STT_FINAL -> TTS_START (0 disables the warning). */
+    public static synchronized void setResponseBudget(long ms) { responseBudgetMs = Math.max(0L, ms); }
+
+    // --------------------------------------------------------------------------------
+    // Marks (called from each hop; cheap, never call back out)
+    // --------------------------------------------------------------------------------
+    /** A final utterance is about to be sent: open a new turn (closing any unfinished one). Returns its id. */
+    public static synchronized String begin() {
+        if (turnId != null) { close("superseded"); }
+        turnId = "turn-" + (++counter);
+        Arrays.fill(marks, 0L);
+        marks[Stage.STT_FINAL.ordinal()] = System.nanoTime();
+        return turnId;
+    }
+
+    /** Id of the open turn (null between turns). */
+    public static synchronized @Nullable String current() { return turnId; }
+
+    /** Mark a stage of the open turn; only the first mark counts. TTS_END closes the turn. */
+    public static synchronized void mark(Stage stage) {
+        if (turnId == null || marks[stage.ordinal()] != 0L) { return; }
+        marks[stage.ordinal()] = System.nanoTime();
+        if (stage == Stage.TTS_END) { close(null); }
+    }
+
+    /** Mark WS_SEND if `id` is the open turn (the queue may write it long after begin()). */
+    public static synchronized void onSent(@Nullable String id) {
+        if (id != null && id.equals(turnId)) { mark(Stage.WS_SEND); }
+    }
+
+    /** The reply was abandoned (e.g. barge-in); log what we have without counting it as a finished turn. */
+    public static synchronized void abandon(String reason) {
+        if (turnId != null) { close(reason); }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Reporting
+    // --------------------------------------------------------------------------------
+    /** Turns closed normally (TTS_END) so far. */
+    public static synchronized long completedTurns() { return completed; }
+
+    /** Log and return the per-stage percentiles. */
+    public static synchronized String dump() {
+        final StringBuilder sb = new StringBuilder(String.format(Locale.US, "turns=%d abandoned=%d over_budget=%d%n  %s",
+                completed, abandoned, overBudget, RESPONSE.summary()));
+        for (Stage s : Stage.values()) { if (s != Stage.STT_FINAL) sb.append(String.format("%n  %s", STAGES.get(s).summary())); }
+        Log.i(TAG, String.format("%s Turn latency: %s", TAG, sb));
+        return sb.toString();
+    }
+
+    /** Finish the open turn: record each stage and warn about the ones over budget. `reason` null = completed normally. */
+    private static void close(@Nullable String reason) {
+        final StringBuilder sb   = new StringBuilder();
+        final StringBuilder over = new StringBuilder();
+        long prev = marks[Stage.STT_FINAL.ordinal()];
+        for (Stage s : Stage.values()) {
+            final long at = marks[s.ordinal()];
+            if (s == Stage.STT_FINAL || at == 0L) { continue; }
+            final long ms = (at - prev) / 1_000_000L;
+            prev = at;
+            if (reason == null) { STAGES.get(s).record(ms); }
+            sb.append(String.format(Locale.US, " | %s %d", s.name().toLowerCase(Locale.ROOT), ms));
+            if (s == Stage.FIRST_REPLY) { sb.append(String.format(Locale.US, " (rtt %d)", Heartbeat.getRttMs())); }
+
+            final long budget = BUDGET.get(s);
+            if (budget > 0 && ms > budget) { over.append(String.format(Locale.US, " %s %d>%d", s.name(), ms, budget)); }
+        }
+
+        final long ttsAt = marks[Stage.TTS_START.ordinal()];
+        final long response = (ttsAt == 0L) ? -1 : (ttsAt - marks[Stage.STT_FINAL.ordinal()]) / 1_000_000L;
+        if (reason == null && response >= 0) { RESPONSE.record(response); }
+        if (responseBudgetMs > 0 && response > responseBudgetMs) { over.append(String.format(Locale.US, " RESPONSE %d>%d", response, responseBudgetMs)); }
+
+        if (reason == null) { completed++; } else { abandoned++; }
+        final String line = String.format(Locale.US, "%s %s%s: response %d ms%s", TAG, turnId, reason == null ? "" : " (" + reason + ")", response, sb);
+        if (over.length() > 0) { overBudget++; Log.w(TAG, String.format("%s | OVER BUDGET:%s", line, over)); }
+        else                   { Log.i(TAG, line); }
+        turnId = null;
+    }
+
+}
@@ -4,20 +4,54 @@ import com.example.buddychat.BuildConfig;
 
 import okhttp3.HttpUrl;
 
+import com.example.buddychat.network.ws.WireFormat;
+
 
 public final class BackendURLs {
     private static final String TAG = "[DPU_BackendURLs]";
+    private BackendURLs() {} // no instances
+
+    private static final boolean LOCAL = "1".equals(BuildConfig.TEST_LOCAL);
+
+    // Stand-in backend (e.g. a MockWebServer in JVM tests); null = use the build's real backend
+    private static volatile HttpUrl override = null;
+
+    /** Point every REST call and the chat WebSocket at another server root (null restores the default). Only for tests/benchmarks. */
+    public static void setBaseOverride(HttpUrl root) { override = root; }
+
+    // --------------------------------------------------------------------------------
+    // REST API base ("<root>/api", no trailing slash)
+    // --------------------------------------------------------------------------------
+    public static String getApiBase() {
+        final HttpUrl root = override;
+        if (root != null) { return root.newBuilder().addPathSegment("api").build().toString(); }
+        return LOCAL
+                ? "http://10.0.2.2:8000/api"             // local docker container
+                : "https://cognibot.org/api";            // cloud server
+                //: "https://sandbox.cognibot.org/api";  // cloud server
+    }
 
     // --------------------------------------------------------------------------------
     // WebSocket URL
     // --------------------------------------------------------------------------------
-    // URL of the WebSocket server
+    // URL of the WebSocket server ("enc" offers the compact binary framing; JSON is used if the server ignores it)
     public static HttpUrl getWebSocketURL(String accessToken) {
+        // For a stand-in backend
+        final HttpUrl root = override;
+        if (root != null) {
+            return root.newBuilder().addPathSegments("ws/chat/")
+                    .addQueryParameter("token",  accessToken)
+                    .addQueryParameter("source", "buddyrobot")
+                    .addQueryParameter("enc",    WireFormat.OFFER)
+                    .build();
+        }
+
         // For local Docker container
-        if (BuildConfig.TEST_LOCAL == "1") {
+        if (LOCAL) {
             return new HttpUrl.Builder().scheme("http").host("10.0.2.2").port(8000).addPathSegments("ws/chat/")
                     .addQueryParameter("token",  accessToken)
                     .addQueryParameter("source", "buddyrobot")
+                    .addQueryParameter("enc",    WireFormat.OFFER)
                     .build();
         }
 
@@ -27,6 +61,7 @@ public final class BackendURLs {
             return new HttpUrl.Builder().scheme("https").host(host).addPathSegments("ws/chat/")
                     .addQueryParameter("token",  accessToken)
                     .addQueryParameter("source", "buddyrobot")
+                    .addQueryParameter("enc",    WireFormat.OFFER)
                     .build();
         }
 
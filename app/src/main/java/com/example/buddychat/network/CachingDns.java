@@ -0,0 +1,59 @@
+package com.example.buddychat.network;
+
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Dns;
+
+// =======================================================================
+// DNS lookups with a small in-process cache
+// =======================================================================
+/** CachingDns <br>
+ * Wraps Dns.SYSTEM and keeps each answer for TTL_MS, so the handful of hosts we talk to are
+ * resolved once (ideally by NetworkUtils.warmUp() during onCreate) instead of on every new connection.
+ * If a refresh fails we keep serving the stale answer rather than failing the call. */
+final class CachingDns implements Dns {
+    private static final String TAG = "[DPU_CachingDns]";
+    private static final long TTL_MS = 5 * 60_000L;
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long              resolvedAt;
+        Entry(List<InetAddress> addresses, long resolvedAt) { this.addresses = addresses; this.resolvedAt = resolvedAt; }
+    }
+
+    private final Map<String, Entry> cache = new HashMap<>();
+
+    @NonNull @Override public List<InetAddress> lookup(@NonNull String host) throws UnknownHostException {
+        final Entry cached;
+        synchronized (this) { cached = cache.get(host); }
+        final long now = System.nanoTime();
+        if (cached != null && (now - cached.resolvedAt) / 1_000_000L < TTL_MS) { return cached.addresses; }
+
+        try {
+            final List<InetAddress> fresh = Dns.SYSTEM.lookup(host);
+            synchronized (this) { cache.put(host, new Entry(fresh, now)); }
+            return fresh;
+        } catch (UnknownHostException e) {
+            if (cached == null) { throw e; }
+            Log.w(TAG, String.format("%s Lookup failed for %s; using the stale answer", TAG, host));
+            return cached.addresses;
+        }
+    }
+
+    /** Resolve a host ahead of time. Returns false (and logs) if it can't be resolved right now. */
+    boolean prefetch(String host) {
+        try                            { lookup(host); return true; }
+        catch (UnknownHostException e) { Log.w(TAG, String.format("%s Prefetch failed for %s: %s", TAG, host, e.getMessage())); return false; }
+    }
+
+    /** Forget everything (e.g. after the device switches networks, when old answers may be wrong). */
+    synchronized void clear() { cache.clear(); }
+
+}
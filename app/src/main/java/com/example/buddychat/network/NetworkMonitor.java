@@ -0,0 +1,56 @@
+package com.example.buddychat.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+import com.example.buddychat.network.ws.ChatSocketManager;
+
+// ================================================================================
+// Watches the device's default network
+// ================================================================================
+/** NetworkMonitor <br>
+ * Forwards connectivity changes to ChatSocketManager so it can reconnect the moment Wi-Fi
+ * comes back instead of waiting out its backoff timer. Registered in MainActivity.onCreate. */
+public final class NetworkMonitor {
+    private static final String TAG = "[DPU_NetworkMonitor]";
+    private NetworkMonitor() {} // no instances
+
+    private static ConnectivityManager                 manager;
+    private static ConnectivityManager.NetworkCallback callback;
+    private static volatile Network                    current; // last default network seen (the first onAvailable is just registration)
+
+    /** Start listening (safe to call more than once). */
+    public static void register(Context context) {
+        if (callback != null) return;
+        manager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (manager == null) { Log.w(TAG, String.format("%s ConnectivityManager unavailable", TAG)); return; }
+
+        callback = new ConnectivityManager.NetworkCallback() {
+            @Override public void onAvailable(@NonNull Network network) {
+                Log.i(TAG, String.format("%s Network available", TAG));
+                if (current != null && !current.equals(network)) { NetworkUtils.onNetworkChanged(); }
+                current = network;
+                ChatSocketManager.onNetworkAvailable();
+            }
+            @Override public void onLost(@NonNull Network network) {
+                Log.w(TAG, String.format("%s Network lost", TAG));
+                ChatSocketManager.onNetworkLost();
+            }
+        };
+
+        try                 { manager.registerDefaultNetworkCallback(callback); }
+        catch (Exception e) { Log.e(TAG, String.format("%s Failed to register network callback: %s", TAG, e.getMessage())); callback = null; }
+    }
+
+    /** Stop listening (call in onDestroy). */
+    public static void unregister() {
+        if (manager == null || callback == null) return;
+        try                 { manager.unregisterNetworkCallback(callback); }
+        catch (Exception e) { Log.w(TAG, String.format("%s Failed to unregister network callback: %s", TAG, e.getMessage())); }
+        callback = null;
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.example.buddychat.network;
+
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+import com.example.buddychat.utils.metrics.LatencyStats;
+
+// =======================================================================
+// Per-call network phase timings
+// =======================================================================
+/** NetworkTimings <br>
+ * An OkHttp EventListener (installed on NetworkUtils.CLIENT) that splits every HTTP call into phases
+ * and records each into its own rolling LatencyStats window: <ul>
+ *     <li> dns / connect / tls -- the facility network (only paid when no pooled connection was reused) </li>
+ *     <li> write -- sending the request headers + body </li>
+ *     <li> ttfb  -- request fully sent to first response byte, i.e. mostly backend think time </li>
+ *     <li> total -- callStart to callEnd </li>
+ * </ul>
+ * OkHttp strips event listeners from the WebSocket upgrade, so ChatSocketManager reports the
+ * time from newWebSocket() to onOpen() through recordWsOpen() instead. Call dump() to log everything. */
+public final class NetworkTimings {
+    private static final String TAG = "[DPU_NetworkTimings]";
+    private NetworkTimings() {} // no instances
+
+    private static final int WINDOW = 100; // samples kept per phase
+
+    public static final LatencyStats DNS     = new LatencyStats("dns",     WINDOW);
+    public static final LatencyStats CONNECT = new LatencyStats("connect", WINDOW); // TCP + TLS
+    public static final LatencyStats TLS     = new LatencyStats("tls",     WINDOW);
+    public static final LatencyStats WRITE   = new LatencyStats("write",   WINDOW);
+    public static final LatencyStats TTFB    = new LatencyStats("ttfb",    WINDOW);
+    public static final LatencyStats TOTAL   = new LatencyStats("total",   WINDOW);
+    public static final LatencyStats WS_OPEN = new LatencyStats("ws_open", WINDOW);
+
+    private static final AtomicLong calls  = new AtomicLong();
+    private static final AtomicLong reused = new AtomicLong(); // calls that skipped dns/connect entirely
+    private static final AtomicLong failed = new AtomicLong();
+
+    /** One listener per call (OkHttp calls the factory for each new Call). */
+    public static final EventListener.Factory FACTORY = call -> new CallTimer();
+
+    // -----------------------------------------------------------------------
+    // Public Access
+    // -----------------------------------------------------------------------
+    /** Time from ChatSocketManager opening a WebSocket to its onOpen() (DNS + connect + TLS + upgrade). */
+    public static void recordWsOpen(long ms) { WS_OPEN.record(ms); }
+
+    /** Log (and return) every phase's percentiles. */
+    public static String dump() {
+        final String out = String.format("calls=%d reused=%d failed=%d%n  %s%n  %s%n  %s%n  %s%n  %s%n  %s%n  %s",
+                calls.get(), reused.get(), failed.get(),
+                DNS.summary(), CONNECT.summary(), TLS.summary(), WRITE.summary(), TTFB.summary(), TOTAL.summary(), WS_OPEN.summary());
+        Log.i(TAG, String.format("%s Network timings: %s", TAG, out));
+        return out;
+    }
+
+    /** Drop all samples (e.g. before a field test). */
+    public static void clear() {
+        for (LatencyStats s : new LatencyStats[] { DNS, CONNECT, TLS, WRITE, TTFB, TOTAL, WS_OPEN }) { s.clear(); }
+        calls.set(0); reused.set(0); failed.set(0);
+    }
+
+    // -----------------------------------------------------------------------
+    // Listener (OkHttp delivers one call's events in order, never concurrently)
+    // -----------------------------------------------------------------------
+    private static final class CallTimer extends EventListener {
+        private long callStart, dnsStart, connectStart, tlsStart, writeStart, writeEnd;
+        private boolean connected = false;
+
+        private static long now()                  { return System.nanoTime(); }
+        private static long ms(long from, long to) { return (to - from) / 1_000_000L; }
+
+        @Override public void callStart(@NonNull Call call) { callStart = now(); calls.incrementAndGet(); }
+
+        @Override public void dnsStart(@NonNull Call call, @NonNull String domainName) { dnsStart = now(); }
+        @Override public void dnsEnd  (@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> list) { DNS.record(ms(dnsStart, now())); }
+
+        @Override public void connectStart     (@NonNull Call call, @NonNull InetSocketAddress a, @NonNull Proxy p) { connectStart = now(); connected = true; }
+        @Override public void secureConnectStart(@NonNull Call call) { tlsStart = now(); }
+        @Override public void secureConnectEnd  (@NonNull Call call, Handshake handshake) { TLS.record(ms(tlsStart, now())); }
+        @Override public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress a, @NonNull Proxy p, Protocol protocol) { CONNECT.record(ms(connectStart, now())); }
+
+        @Override public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) { if (!connected) { reused.incrementAndGet(); } }
+
+        @Override public void requestHeadersStart(@NonNull Call call) { writeStart = now(); }
+        @Override public void requestHeadersEnd  (@NonNull Call call, @NonNull Request request) { writeEnd = now(); }
+        @Override public void requestBodyEnd     (@NonNull Call call, long byteCount) { writeEnd = now(); }
+
+        @Override public void responseHeadersStart(@NonNull Call call) {
+            final long t = now();
+            WRITE.record(ms(writeStart, writeEnd));
+            TTFB .record(ms(writeEnd,   t));
+        }
+
+        @Override public void callEnd   (@NonNull Call call)                        { TOTAL.record(ms(callStart, now())); }
+        @Override public void callFailed(@NonNull Call call, @NonNull IOException e) {
+            failed.incrementAndGet();
+            Log.w(TAG, String.format("%s %s failed after %d ms: %s", TAG, call.request().url().encodedPath(), ms(callStart, now()), e.getMessage()));
+        }
+    }
+
+}
@@ -2,9 +2,13 @@ package com.example.buddychat.network;
 import com.example.buddychat.BuildConfig;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import android.util.Log;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import okhttp3.*;
 
 import com.google.gson.Gson;
@@ -12,6 +16,7 @@ import com.google.gson.JsonObject;
 
 import com.example.buddychat.network.model.Profile;
 import com.example.buddychat.network.model.AuthResponse;
+import com.example.buddychat.utils.metrics.StageTimer;
 
 
 // =======================================================================
@@ -22,16 +27,25 @@ public class NetworkUtils {
     // -----------------------------------------------------------------------
     // Constants
     // -----------------------------------------------------------------------
-    public static final OkHttpClient CLIENT = new OkHttpClient(); // Re-used client
-    private static final Gson GSON = new Gson();
     private static final String TAG  = "[DPU_NetworkUtils]";
-    //private static final String BASE = "https://sandbox.cognibot.org/api";
-    //private static final String BASE = "http://10.0.2.2:8000/api";
-    private static final String BASE =
-            "1".equals(BuildConfig.TEST_LOCAL)
-                    ? "http://10.0.2.2:8000/api"             // local docker container
-                    : "https://cognibot.org/api";            // cloud server
-                    //: "https://sandbox.cognibot.org/api";  // cloud server
+    private static final Gson GSON = new Gson();
+
+    // Re-used client, shared (via newBuilder) by the chat WebSocket so everything uses one pool, one DNS cache and one TLS session cache.
+    // HTTP/1.1 only: OkHttp's WebSocket client is forced to HTTP/1.1, and a pooled connection is only reused for a matching
+    // protocol list, so this is what lets the WS upgrade pick up the connection warmUp() opened. (Our REST traffic is tiny; h2 buys nothing.)
+    private static final CachingDns DNS = new CachingDns();
+    public  static final OkHttpClient CLIENT = new OkHttpClient.Builder()
+            .dns(DNS)
+            .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+            .protocols(Collections.singletonList(Protocol.HTTP_1_1))
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout   (20, TimeUnit.SECONDS)
+            .writeTimeout  (20, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(true)
+            .eventListenerFactory(NetworkTimings.FACTORY)  // per-phase timings for every call (see NetworkTimings.dump())
+            .build();
+    // Backend root lives in BackendURLs (so tests can point it at a stand-in server)
+    private static String base() { return BackendURLs.getApiBase(); }
 
 
     // -----------------------------------------------------------------------
@@ -42,27 +56,65 @@ public class NetworkUtils {
         void onError(Throwable t);
     }
     public interface ProfileCallback {
-        void onSuccess(Profile p);
+        void onSuccess(Profile p, String rawJson, @Nullable String etag); // 200 (etag = the response's ETag, if any)
+        void onNotModified();                                             // 304: the cached copy is still current
         void onError(Throwable t);
     }
 
     // -----------------------------------------------------------------------
     // Pings the /health endpoint and logs the HTTP status + body
     // -----------------------------------------------------------------------
-    public static void pingHealth() {
-        Request request = new Request.Builder().url(BASE + "/health/").get().build();
+    public static void pingHealth() { pingHealth(null, null); }
+
+    private static void pingHealth(@Nullable final StageTimer timer, @Nullable final Runnable onDone) {
+        Request request = new Request.Builder().url(base() + "/health/").get().build();
 
         CLIENT.newCall(request).enqueue(new Callback() {
-            @Override public void onFailure (@NonNull Call call, @NonNull IOException e) {Log.e(TAG, String.format("%s Ping failed: %s", TAG, e));}
+            @Override public void onFailure (@NonNull Call call, @NonNull IOException e) {
+                Log.e(TAG, String.format("%s Ping failed: %s", TAG, e));
+                if (timer  != null) { timer.end("health"); Log.i(TAG, String.format("%s Warm-up failed: %s", TAG, timer.summary())); }
+                if (onDone != null) { onDone.run(); }
+            }
             @Override public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
                 try (ResponseBody body = response.body()) {
                     String text = body != null ? body.string() : "<empty>";
                     Log.d(TAG, String.format("%s Status: %s - %s", TAG, response.code(), text));
                 }
+                if (timer  != null) { timer.end("health"); Log.i(TAG, String.format("%s Warm-up done: %s", TAG, timer.summary())); }
+                if (onDone != null) { onDone.run(); }
             }
         });
     }
 
+    // -----------------------------------------------------------------------
+    // Warm-up (call once in MainActivity.onCreate, before login)
+    // -----------------------------------------------------------------------
+    /** Resolve the backend host and open a pooled TLS connection to it (via the /health ping) so that
+     * login, profile and the WebSocket upgrade skip the DNS/TCP/TLS setup. Runs off the main thread.
+     * The future completes when the warm-up is over, whether or not it worked (nothing should fail because of it). */
+    public static CompletableFuture<Void> warmUp() {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final String host = HttpUrl.get(base()).host();
+        new Thread(() -> {
+            final StageTimer timer = new StageTimer("net_warmup");
+            timer.begin("dns");
+            final boolean resolved = DNS.prefetch(host);
+            timer.end("dns");
+            if (!resolved) { Log.w(TAG, String.format("%s Warm-up skipped; %s did not resolve (%s)", TAG, host, timer.summary())); done.complete(null); return; }
+
+            // The response is read fully, so the connection goes back into the pool (and its TLS session into the cache)
+            timer.begin("health");
+            pingHealth(timer, () -> done.complete(null));
+        }, "net-warmup").start();
+        return done;
+    }
+
+    /** The default network changed: cached DNS answers and idle connections belong to the old one. */
+    public static void onNetworkChanged() {
+        DNS.clear();
+        CLIENT.connectionPool().evictAll();
+    }
+
 
     // -----------------------------------------------------------------------
     // Login
@@ -73,7 +125,7 @@ public class NetworkUtils {
         payload.addProperty("username", BuildConfig.API_USER);
         payload.addProperty("password", BuildConfig.API_PASS);
 
-        String endpoint = String.format("%s/token/", BASE);
+        String endpoint = String.format("%s/token/", base());
         RequestBody body = RequestBody.create(GSON.toJson(payload), MediaType.get("application/json"));
         Request     req  = new Request.Builder().url(endpoint).post(body).build();
 
@@ -101,16 +153,19 @@ public class NetworkUtils {
     // --------------------------------------------------------------------
     // Use tokens to get profile information
     // --------------------------------------------------------------------
-    public static void fetchProfile(String accessToken, ProfileCallback cb) {
-        Request req = new Request.Builder()
-                .url(BASE + "/profile/")
-                .header("Authorization", "Bearer " + accessToken)
-                .get().build();
+    /** GET /profile/. With an ETag from a previous response this is a conditional request, and an unchanged profile comes back as a bodiless 304. */
+    public static void fetchProfile(String accessToken, @Nullable String etag, ProfileCallback cb) {
+        Request.Builder rb = new Request.Builder()
+                .url(base() + "/profile/")
+                .header("Authorization", "Bearer " + accessToken);
+        if (etag != null) { rb.header("If-None-Match", etag); }
+        Request req = rb.get().build();
 
         CLIENT.newCall(req).enqueue(new Callback() {
             @Override public void onFailure (@NonNull Call c, @NonNull IOException e) { cb.onError(e); }
             @Override public void onResponse(@NonNull Call c, @NonNull Response r) {
                 try (ResponseBody b = r.body()) {
+                    if (r.code() == 304  ) { Log.i(TAG, String.format("%s PROFILE not modified", TAG)); cb.onNotModified(); return; }
                     if (!r.isSuccessful()) { throw new IOException("HTTP " + r.code());                  }
                     if (b == null        ) { Log.e(TAG, String.format("%s body was null", TAG)); return; }
 
@@ -118,7 +173,7 @@ public class NetworkUtils {
                     Log.i(TAG, String.format("%s PROFILE JSON: %s", TAG, raw));
 
                     Profile p = GSON.fromJson(raw, Profile.class);
-                    cb.onSuccess(p);
+                    cb.onSuccess(p, raw, r.header("ETag"));
 
                 } catch (Exception ex) { cb.onError(ex); }
             }
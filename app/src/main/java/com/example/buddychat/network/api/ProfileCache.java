@@ -0,0 +1,80 @@
+package com.example.buddychat.network.api;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+
+import com.example.buddychat.MainApplication;
+
+// ================================================================================
+// On-disk copy of the last profile response
+// ================================================================================
+/** ProfileCache <br>
+ * Keeps the raw /profile/ JSON, its ETag and when it was fetched in one small file under filesDir
+ * (it survives the nightly reboots; cacheDir may be purged). Written to a temp file and renamed so a
+ * crash mid-write never leaves a half file behind. Every method is a no-op off-device (no context). */
+final class ProfileCache {
+    private static final String TAG  = "[DPU_ProfileCache]";
+    private static final String FILE = "profile_cache.json";
+    private static final Gson   GSON = new Gson();
+    private ProfileCache() {} // no instances
+
+    /** What we store (the body stays raw so it is parsed exactly like a network response). */
+    static final class Entry {
+        String etag;
+        long   fetchedAt;  // System.currentTimeMillis() of the last 200/304
+        String body;
+
+        Entry(@Nullable String etag, long fetchedAt, String body) { this.etag = etag; this.fetchedAt = fetchedAt; this.body = body; }
+    }
+
+    @Nullable private static File file() {
+        final Context context = MainApplication.getAppContext();
+        return (context != null) ? new File(context.getFilesDir(), FILE) : null;
+    }
+
+    /** The stored entry, or null if there is none (or it can't be read). */
+    @Nullable static synchronized Entry read() {
+        final File f = file();
+        if (f == null || !f.exists()) { return null; }
+        try (Reader r = new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8)) {
+            final Entry e = GSON.fromJson(r, Entry.class);
+            return (e != null && e.body != null) ? e : null;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, String.format("%s Could not read cache: %s", TAG, e.getMessage()));
+            return null;
+        }
+    }
+
+    static synchronized void write(Entry entry) {
+        final File f = file();
+        if (f == null) { return; }
+        final File tmp = new File(f.getPath() + ".tmp");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            GSON.toJson(entry, w);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, String.format("%s Could not write cache: %s", TAG, e.getMessage()));
+            return;
+        }
+        if (!tmp.renameTo(f)) { Log.w(TAG, String.format("%s Could not replace %s", TAG, f)); }
+    }
+
+    /** A 304 only refreshes the timestamp. */
+    static synchronized void touch(Entry entry) {
+        entry.fetchedAt = System.currentTimeMillis();
+        write(entry);
+    }
+
+}
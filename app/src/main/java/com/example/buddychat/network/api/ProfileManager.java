@@ -1,7 +1,13 @@
 package com.example.buddychat.network.api;
 
 import android.util.Log;
+import androidx.annotation.Nullable;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.google.gson.Gson;
+
+import com.example.buddychat.chat.LanguageSwitcher;
 import com.example.buddychat.network.NetworkUtils;
 import com.example.buddychat.network.model.Profile;
 import com.example.buddychat.utils.UiUtils;
@@ -11,30 +17,86 @@ import com.example.buddychat.utils.UiUtils;
 // ================================================================================
 // Relies on the `TokenManager` package for the authentication token
 // ToDo: To update the actual text UI, we need way to pass a callback in fetch profile that has a reference to that UI element
+/// The last profile is kept on disk (ProfileCache) with its ETag:
+/// - loadCached() reads it without touching the network, so the UI can greet the user right away
+/// - refresh() skips the network entirely if the copy is younger than FRESH_FOR_MS, otherwise revalidates
+///   with If-None-Match, so an unchanged profile costs a bodiless 304
 public final class ProfileManager {
     private static final String TAG  = "[DPU_Profile]";
+    private ProfileManager() {} // no instances
 
-    /// Fetch the user's profile information (can only do so once we have logged in)
-    public static void fetchProfile() {
-        Log.d(TAG, String.format("%s Attempting to fetch user profile...", TAG));
+    // A copy this young is used as-is (covers app restarts/crash loops); older ones are revalidated
+    private static final long FRESH_FOR_MS = 10 * 60_000L;
+    private static final Gson GSON = new Gson();
 
-        // Get the authorization token from TokenManager
-        final String authToken = TokenManager.getAccessToken();
+    private static volatile Profile current;
+    @Nullable public static Profile getProfile() { return current; }
 
-        // Use the NetworkUtils code
-        NetworkUtils.fetchProfile(authToken, new NetworkUtils.ProfileCallback() {
-            @Override public void onSuccess(Profile p  ) { onProfileSuccess(p); }
-            @Override public void onError  (Throwable t) { onProfileError  (t); }
+    // --------------------------------------------------------------------------------
+    // Public API (both return futures so MainActivity can wire them into its startup graph)
+    // --------------------------------------------------------------------------------
+    /// Read the cached profile from disk (completes with null if there is none). Call off the main thread.
+    public static CompletableFuture<Profile> loadCached() {
+        return CompletableFuture.supplyAsync(() -> {
+            final ProfileCache.Entry e = ProfileCache.read();
+            if (e == null) { return null; }
+            final Profile p = parse(e.body);
+            if (p != null && current == null) {
+                current = p;
+                Log.d(TAG, String.format("%s Loaded cached profile (%s)", TAG, username(p)));
+                LanguageSwitcher.request(p.language, "cached profile");
+            }
+            return p;
         });
     }
 
+    /// Bring the profile up to date (can only do so once we have logged in)
+    public static CompletableFuture<Profile> refresh(String authToken) {
+        final CompletableFuture<Profile> result = new CompletableFuture<>();
+        final ProfileCache.Entry cached = ProfileCache.read();
+
+        // Fresh enough: no request at all
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < FRESH_FOR_MS) {
+            final Profile p = parse(cached.body);
+            if (p != null) {
+                Log.d(TAG, String.format("%s Cached profile is fresh; skipping fetch", TAG));
+                onProfileSuccess(p);
+                result.complete(p);
+                return result;
+            }
+        }
+
+        Log.d(TAG, String.format("%s Attempting to fetch user profile (etag=%s)...", TAG, cached != null ? cached.etag : null));
+        NetworkUtils.fetchProfile(authToken, cached != null ? cached.etag : null, new NetworkUtils.ProfileCallback() {
+            @Override public void onSuccess(Profile p, String raw, String etag) {
+                ProfileCache.write(new ProfileCache.Entry(etag, System.currentTimeMillis(), raw));
+                onProfileSuccess(p);
+                result.complete(p);
+            }
+            @Override public void onNotModified() {
+                final Profile p = (cached != null) ? parse(cached.body) : null;
+                if (p == null) { onError(new IllegalStateException("304 without a cached profile")); return; }
+                ProfileCache.touch(cached);
+                onProfileSuccess(p);
+                result.complete(p);
+            }
+            @Override public void onError(Throwable t) {
+                onProfileError(t);
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
     // --------------------------------------------------------------------------------
     // Profile Callbacks
     // --------------------------------------------------------------------------------
     /// Flash a Toast message once successfully retrieving the profile
     private static void onProfileSuccess(Profile p) {
-        Log.i(TAG, String.format("%s Profile fetch success! Welcome, %s %s | %s", TAG, p.plwd.first_name, p.plwd.last_name, p.plwd.username));
-        UiUtils.showToast(String.format("Welcome %s", p.plwd.username));
+        current = p;
+        Log.i(TAG, String.format("%s Profile fetch success! Welcome, %s", TAG, username(p)));
+        if (p.plwd != null) { UiUtils.showToast(String.format("Welcome %s", p.plwd.username)); }
+        LanguageSwitcher.request(p.language, "profile");
     }
 
     private static void onProfileError  (Throwable t) {
@@ -42,4 +104,16 @@ public final class ProfileManager {
         UiUtils.showToast(String.format("%s Profile fetch failed: %s", TAG, t.getMessage()));
     }
 
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    @Nullable private static Profile parse(String raw) {
+        try                        { return GSON.fromJson(raw, Profile.class); }
+        catch (RuntimeException e) { Log.w(TAG, String.format("%s Bad cached profile: %s", TAG, e.getMessage())); return null; }
+    }
+
+    private static String username(Profile p) {
+        return (p.plwd == null) ? "?" : String.format("%s %s | %s", p.plwd.first_name, p.plwd.last_name, p.plwd.username);
+    }
+
 }
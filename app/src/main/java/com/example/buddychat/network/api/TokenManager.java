@@ -1,34 +1,57 @@
 package com.example.buddychat.network.api;
 
-import android.os.Handler;
-import android.os.Looper;
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 
+import org.json.JSONObject;
+
+import com.example.buddychat.MainApplication;
 import com.example.buddychat.network.NetworkUtils;
 import com.example.buddychat.utils.UiUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 // ================================================================================
 // Fetch & maintain authorization token from the backend API
 // ================================================================================
-// ToDo: Maybe use synchronized here on the first call? Or somehow freeze the state...
+/// The access token is a JWT: we read its "exp" claim and refresh a little before it runs out,
+/// instead of on a fixed timer. Only one login is ever in flight; every caller that needs a token
+/// while it runs gets the same future. The last good token is saved to SharedPreferences so a cold
+/// start can connect right away and refresh in the background.
 public final class TokenManager {
     private static final String TAG  = "[DPU_TokenManager]";
     private TokenManager() {} // no instances
 
-    private static volatile String          authToken;
-    private static ScheduledExecutorService scheduler;
+    private static volatile String authToken;
+    private static volatile long   expiresAtMs = -1;  // wall-clock expiry from the "exp" claim (-1 = unknown)
+
+    // Refresh this long before "exp"; if the token has no "exp" we fall back to the old fixed interval
+    private static final long REFRESH_MARGIN_MS   = 60_000L;
+    private static final long FALLBACK_REFRESH_MS = TimeUnit.MINUTES.toMillis(14);
+    private static final long RETRY_DELAY_MS      = 2_000L;  // between login attempts
+    private static final long FAILED_REFRESH_MS   = 30_000L; // after a refresh gives up, before the next round
+    private static final int  LOGIN_ATTEMPTS      = 3;
 
-    // Safety buffer: If token lasts 15 mins, refresh at 14 mins
-    private static final long REFRESH_INTERVAL_MINUTES = 14;
+    // Timers (refresh + retry delays) run on their own thread, not the main Looper
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor();
+    private static ScheduledFuture<?>        refreshTask = null;  // guarded by the class lock
+    private static CompletableFuture<String> inFlight    = null;  // the single login in progress (guarded by the class lock)
+
+    // Persisted token cache
+    private static final String PREFS     = "auth";
+    private static final String KEY_TOKEN = "access_token";
 
     // --------------------------------------------------------------------------------
     // Public Access
     // --------------------------------------------------------------------------------
-    /// Get the current access token
+    /// Get the current access token ("" if we have none yet; prefer ensureToken() when you can wait)
     public static String getAccessToken() {
         if (authToken == null) {
             Log.e(TAG, String.format("%s WARNING: Token requested before login completed!", TAG));
@@ -37,78 +60,142 @@ public final class TokenManager {
         return authToken;
     }
 
-    /// Public wrapper method; set to try 3 times
-    public static void initialLogin(final Runnable onLoginSuccessAction) {
+    /// A future for a usable token: completes immediately if the current one is still valid, otherwise joins the in-flight login
+    public static CompletableFuture<String> ensureToken() {
+        final String token = authToken;
+        if (token != null && !isExpired()) { return CompletableFuture.completedFuture(token); }
+        return login();
+    }
+
+    /// App startup: use the saved token if it is still valid (refreshing in the background), otherwise log in
+    public static CompletableFuture<String> initialLogin() {
         Log.d(TAG, String.format("%s Starting initial login sequence...", TAG));
-        login(3, true, onLoginSuccessAction); // true = this is the initial login on app startup
+        if (authToken == null) { loadPersisted(); }
+
+        final String token = authToken;
+        if (token != null && !isExpired()) {
+            Log.i(TAG, String.format("%s Using saved token; refreshing in the background", TAG));
+            scheduleRefresh(0);
+            return CompletableFuture.completedFuture(token);
+        }
+        return login();
     }
 
     /// Cleanup (Call in onDestroy)
-    public static void stopTokenRefresher() {
-        if (scheduler != null && !scheduler.isShutdown()) { scheduler.shutdownNow(); scheduler = null; }
+    public static synchronized void stopTokenRefresher() {
+        if (refreshTask != null) { refreshTask.cancel(false); refreshTask = null; }
     }
 
     // --------------------------------------------------------------------------------
-    // Login & Callbacks
+    // Login (single-flight)
     // --------------------------------------------------------------------------------
+    /// Start a login, or join the one already running
+    private static synchronized CompletableFuture<String> login() {
+        if (inFlight != null) { Log.d(TAG, String.format("%s Login already in flight; joining it", TAG)); return inFlight; }
+        final CompletableFuture<String> f = new CompletableFuture<>();
+        inFlight = f;
+        attempt(LOGIN_ATTEMPTS, f);
+        return f;
+    }
+
     /// Attempt to fetch token; retry if it fails
-    private static void login(final int retries, final boolean isInitialSetup, final Runnable onSuccessAction) {
-        Log.d(TAG, String.format("%s Attempting login... | isInitialSetup=%s", TAG, isInitialSetup));
+    private static void attempt(final int attemptsLeft, final CompletableFuture<String> f) {
+        Log.d(TAG, String.format("%s Attempting login... (%d attempts left)", TAG, attemptsLeft));
         NetworkUtils.login(new NetworkUtils.AuthCallback() {
-            @Override public void onSuccess(String    accessToken) { onLoginSuccess(accessToken, isInitialSetup, onSuccessAction); }
-            @Override public void onError  (Throwable t          ) { onLoginError  (t,  retries, isInitialSetup, onSuccessAction); }
+            @Override public void onSuccess(String    accessToken) { onLoginSuccess(accessToken, f); }
+            @Override public void onError  (Throwable t          ) { onLoginError  (t, attemptsLeft, f); }
         });
     }
 
-    /// Successful login callback: Set the token & start the refresh timer
-    private static void onLoginSuccess(String accessToken, final boolean isInitialSetup, final Runnable onSuccessAction) {
-        authToken = accessToken;
-        // Only start the refresh timer if this was the initial login attempt
-        if (isInitialSetup) {
-            Log.i(TAG, String.format("%s Initial login successful. Starting refresh timer & executing next step...", TAG));
-            startTokenRefresher();
-            if (onSuccessAction != null) { onSuccessAction.run(); }
-        }
-        else { Log.d(TAG, String.format("%s Token background refresh successful.", TAG)); }
-    }
+    /// Successful login callback: Set the token, save it, schedule the next refresh & release every waiter
+    private static void onLoginSuccess(String accessToken, final CompletableFuture<String> f) {
+        setToken(accessToken);
+        persist();
+        scheduleRefresh(0);
+        Log.i(TAG, String.format("%s Login successful (exp=%d)", TAG, expiresAtMs));
 
-    /// Failed login Callback: Try again
-    private static void onLoginError(Throwable t, int retries, final boolean isInitialSetup, final Runnable onSuccessAction) {
-        Log.w(TAG, String.format("%s Login failed: %s (%d retries remaining)", TAG, t.getMessage(), retries));
-        handleRetry(retries, isInitialSetup, onSuccessAction);
+        synchronized (TokenManager.class) { if (inFlight == f) { inFlight = null; } }
+        f.complete(accessToken);
     }
 
-    /// Handle retries with a small delay (2 seconds) so we don't spam the network
-    private static void handleRetry(final int retries, final boolean isInitialSetup, final Runnable onSuccessAction) {
-        if (retries > 0) {
-            Log.d(TAG, String.format("%s Retrying in 2 seconds... (%d retries remaining)", TAG, retries));
-            new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
-                @Override public void run() { login(retries - 1, isInitialSetup, onSuccessAction); } }, 2000); // 2000ms delay
-        } else {
-            Log.e(TAG, String.format("%s All login attempts failed.", TAG));
-            UiUtils.showToast("All login attempts failed.", 1);
+    /// Failed login Callback: Try again after a short delay so we don't spam the network
+    private static void onLoginError(Throwable t, int attemptsLeft, final CompletableFuture<String> f) {
+        Log.w(TAG, String.format("%s Login failed: %s (%d attempts left)", TAG, t.getMessage(), attemptsLeft - 1));
+        if (attemptsLeft > 1) {
+            TIMER.schedule(() -> attempt(attemptsLeft - 1, f), RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            return;
         }
+
+        Log.e(TAG, String.format("%s All login attempts failed.", TAG));
+        UiUtils.showToast("All login attempts failed.", 1);
+        synchronized (TokenManager.class) { if (inFlight == f) { inFlight = null; } }
+        if (authToken != null) { scheduleRefresh(FAILED_REFRESH_MS); } // keep trying in the background while the old token lasts
+        f.completeExceptionally(t);
     }
 
     // --------------------------------------------------------------------------------
     // Token Refresh / Timer Logic
     // --------------------------------------------------------------------------------
-    /// Set a timer to refresh the token before it expires
-    private static void startTokenRefresher() {
-        // Prevent starting multiple timers if one is already running
+    /// (Re)schedule the background refresh for shortly before the current token expires (but no sooner than minDelayMs)
+    private static synchronized void scheduleRefresh(long minDelayMs) {
         stopTokenRefresher();
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-
-        // Runnable that triggers the background refresh
-        scheduler.scheduleWithFixedDelay(new Runnable() {
-            @Override public void run() { performRefresh(); }
-        }, REFRESH_INTERVAL_MINUTES, REFRESH_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        final long delay = Math.max(minDelayMs, (expiresAtMs > 0)
+                ? expiresAtMs - REFRESH_MARGIN_MS - System.currentTimeMillis()
+                : FALLBACK_REFRESH_MS);
+        Log.d(TAG, String.format("%s Next token refresh in %d s", TAG, delay / 1000));
+        refreshTask = TIMER.schedule(TokenManager::performRefresh, delay, TimeUnit.MILLISECONDS);
     }
 
-    /// Refresh Logic (no onSuccessAction)
+    /// Refresh Logic (callers holding the old token keep using it until the new one arrives)
     private static void performRefresh() {
         Log.d(TAG, String.format("%s Timer triggered: Refreshing token now...", TAG));
-        login(3, false, ()->{}); // false = this is NOT initial setup, so don't restart the timer
+        login();
+    }
+
+    // --------------------------------------------------------------------------------
+    // Helpers (JWT + persistence)
+    // --------------------------------------------------------------------------------
+    private static void setToken(String token) {
+        authToken   = token;
+        expiresAtMs = parseExpiryMs(token);
+    }
+
+    /// True if the token is past (or within the margin of) its "exp"; a token without "exp" is trusted until the server rejects it
+    private static boolean isExpired() {
+        return expiresAtMs > 0 && System.currentTimeMillis() >= expiresAtMs - REFRESH_MARGIN_MS;
+    }
+
+    /// Read the "exp" claim (seconds) from a JWT's payload segment. Returns -1 if it can't be read.
+    static long parseExpiryMs(String jwt) {
+        try {
+            final String[] parts = jwt.split("\\.");
+            if (parts.length < 2) { return -1; }
+            final byte[]   bytes = Base64.getUrlDecoder().decode(parts[1]);
+            final long     exp   = new JSONObject(new String(bytes, StandardCharsets.UTF_8)).optLong("exp", -1);
+            return (exp > 0) ? exp * 1000L : -1;
+        } catch (Exception e) {
+            Log.w(TAG, String.format("%s Could not read token expiry: %s", TAG, e.getMessage()));
+            return -1;
+        }
+    }
+
+    private static SharedPreferences prefs() {
+        return MainApplication.getAppContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /// Restore the last saved token (ignored if it has already expired)
+    private static void loadPersisted() {
+        try {
+            final String token = prefs().getString(KEY_TOKEN, null);
+            if (token == null) { return; }
+            setToken(token);
+            if (isExpired()) { Log.d(TAG, String.format("%s Saved token has expired", TAG)); authToken = null; expiresAtMs = -1; }
+        } catch (RuntimeException e) { Log.w(TAG, String.format("%s Could not load saved token: %s", TAG, e.getMessage())); }
+    }
+
+    private static void persist() {
+        try                        { prefs().edit().putString(KEY_TOKEN, authToken).apply(); }
+        catch (RuntimeException e) { Log.w(TAG, String.format("%s Could not save token: %s", TAG, e.getMessage())); }
     }
 
 }
@@ -5,4 +5,5 @@ public class Profile {
     public User   plwd;
     public User   caregiver;
     public String role;
+    public String language; // optional, e.g. "fr" or "en-US"; Buddy switches to it when the profile loads
 }
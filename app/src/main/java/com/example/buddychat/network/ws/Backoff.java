@@ -0,0 +1,41 @@
+package com.example.buddychat.network.ws;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// ================================================================================
+// Exponential backoff with "full jitter"
+// ================================================================================
+/** Backoff <br>
+ * delay = random(0, min(cap, base * 2^attempt)) <br>
+ * The random spread keeps a fleet of robots from reconnecting in lockstep after a server restart.
+ * Not thread-safe; ChatSocketManager calls it from several threads (connect() on the UI thread, onSocketOpen on
+ * OkHttp's, onNetworkAvailable on ConnectivityManager's, retries on its reconnect thread), always under its class lock. */
+public final class Backoff {
+    private final long baseMs;
+    private final long capMs;
+    private int attempt = 0;
+
+    /**
+     * @param baseMs  upper bound of the first delay
+     * @param capMs   the delay window never grows past this
+     */
+    public Backoff(long baseMs, long capMs) {
+        if (baseMs < 1 || capMs < baseMs) throw new IllegalArgumentException("need 1 <= baseMs <= capMs");
+        this.baseMs = baseMs;
+        this.capMs  = capMs;
+    }
+
+    /** Delay before the next attempt; each call widens the window until it reaches the cap. */
+    public long nextDelayMs() {
+        final int  shift  = Math.min(attempt++, 30); // avoid overflowing the shift
+        final long window = Math.min(capMs, baseMs << shift);
+        return ThreadLocalRandom.current().nextLong(window + 1);
+    }
+
+    /** Number of delays handed out since the last reset. */
+    public int attempts() { return attempt; }
+
+    /** Call after a successful connection (or when connectivity comes back) to start small again. */
+    public void reset() { attempt = 0; }
+
+}
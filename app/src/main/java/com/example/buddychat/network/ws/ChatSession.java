@@ -0,0 +1,72 @@
+package com.example.buddychat.network.ws;
+
+import android.util.Log;
+
+import okhttp3.HttpUrl;
+
+// ================================================================================
+// Server-side conversation we are bound to
+// ================================================================================
+/** ChatSession <br>
+ * Right after a socket opens the server sends {"type":"session","session_id":..,"resume_token":..,"resumed":bool}.
+ * Every conversational frame it sends after that carries a "server_seq". <ul>
+ *     <li> When we reconnect during the same chat, the URL carries session_id, resume_token and last_seq. The server
+ *          rebinds us to the same conversation (LLM context intact) and replays whatever we missed after last_seq. </li>
+ *     <li> accept() drops anything at or below last_seq, so a replay that overlaps what we already got is harmless. </li>
+ *     <li> If the server can't resume (expired/unknown session) it answers with a fresh session and resumed=false. </li>
+ * </ul>
+ * Cleared by ChatSocketManager.connect() (new chat) and endChat(). A backend without sessions never sends
+ * "session", so nothing is added to the URL and every frame is accepted. */
+public final class ChatSession {
+    private static final String TAG = "[DPU_ChatSession]";
+    private ChatSession() {} // no instances
+
+    private static String sessionId     = null;
+    private static String resumeToken   = null;
+    private static long   lastServerSeq = 0;    // highest server_seq handled in this session
+
+    // --------------------------------------------------------------------------------
+    // Called by ChatSocketManager / MessageHandler
+    // --------------------------------------------------------------------------------
+    /** Forget the session (the next socket starts a new conversation). */
+    static synchronized void reset() {
+        sessionId = null; resumeToken = null; lastServerSeq = 0;
+    }
+
+    static synchronized boolean hasSession() { return sessionId != null; }
+
+    /** Add the resume parameters to a WebSocket URL (no-op without a session). */
+    static synchronized HttpUrl applyTo(HttpUrl url) {
+        if (sessionId == null) { return url; }
+        final HttpUrl.Builder b = url.newBuilder()
+                .addQueryParameter("session_id", sessionId)
+                .addQueryParameter("last_seq",   Long.toString(lastServerSeq));
+        if (resumeToken != null) { b.addQueryParameter("resume_token", resumeToken); }
+        return b.build();
+    }
+
+    /** Handle a "session" frame. Returns false if the server started a new conversation instead of resuming ours. */
+    static synchronized boolean onSession(String id, String token, boolean resumed) {
+        final boolean lost = sessionId != null && (!resumed || !sessionId.equals(id));
+        if (lost) { Log.w(TAG, String.format("%s Session %s could not be resumed; now %s (context lost)", TAG, sessionId, id)); }
+        else if (sessionId != null) { Log.i(TAG, String.format("%s Resumed session %s after server_seq %d", TAG, id, lastServerSeq)); }
+        else { Log.i(TAG, String.format("%s New session %s", TAG, id)); }
+
+        if (lost || sessionId == null) { lastServerSeq = 0; }
+        sessionId   = id;
+        resumeToken = token;
+        return !lost;
+    }
+
+    /** True if a frame with this server_seq hasn't been handled yet (frames without one, seq <= 0, always pass). */
+    static synchronized boolean accept(long serverSeq) {
+        if (serverSeq <= 0) { return true; }
+        if (serverSeq <= lastServerSeq) {
+            Log.d(TAG, String.format("%s Dropping replayed frame server_seq=%d (have %d)", TAG, serverSeq, lastServerSeq));
+            return false;
+        }
+        lastServerSeq = serverSeq;
+        return true;
+    }
+
+}
@@ -1,91 +1,255 @@
 package com.example.buddychat.network.ws;
 
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.*;
 import org.json.JSONObject;
 
 import com.example.buddychat.network.NetworkUtils;
 import com.example.buddychat.network.BackendURLs;
+import com.example.buddychat.network.NetworkTimings;
 
 import com.example.buddychat.network.api.TokenManager;
 
 import com.example.buddychat.chat.StatusController;
+import com.example.buddychat.chat.TurnTracer;
 
 // ================================================================================
 // WebSocket Manager
 // ================================================================================
 /// Connect, disconnect, send...
 /// Refers to a separate ChatListener utility for handling messages
+/// Lifecycle: CONNECTING -> OPEN (<-> DEGRADED) -> BACKING_OFF -> CONNECTING ... -> CLOSED (see ConnectionState)
 public final class ChatSocketManager {
     private static final String TAG  = "[DPU_ChatSocketManager]";
     private ChatSocketManager() {} // no instances
 
     // The single active connection
-    private static WebSocket SOCKET;
-    private static final OkHttpClient CLIENT = NetworkUtils.CLIENT;
+    private static volatile WebSocket SOCKET;
+    // Shares the app-wide connection pool; protocol-level pings let OkHttp fail a dead socket on its own too
+    private static final OkHttpClient CLIENT = NetworkUtils.CLIENT.newBuilder().pingInterval(15, TimeUnit.SECONDS).build();
 
     // We keep track of the listener so we can notify it of logic changes if needed
     private static ChatUICallbacks listenerInstance;
 
+    // Outbound messages wait here until the socket is open, and stay tracked until the server acks them
+    private static final OutboundQueue QUEUE = new OutboundQueue(32, 60_000L, body -> TurnTracer.onSent(body.optString("turn_id", null)));
+    private static volatile boolean isOpen = false;
+    private static volatile WireFormat wire = WireFormat.JSON; // per socket; see WireFormat
+
+    // Connection lifecycle (all transitions are synchronized on the class; retries run on their own thread, not the main Looper)
+    private static final ScheduledExecutorService RECONNECT = Executors.newSingleThreadScheduledExecutor();
+    private static final Backoff BACKOFF              = new Backoff(500L, 30_000L); // full jitter, 0.5s -> 30s window
+    private static final int     MAX_INITIAL_ATTEMPTS = 5;  // before the first open we give up eventually; after that we never do
+    private static volatile ConnectionState state     = ConnectionState.CLOSED;
+    private static boolean            chatWanted      = false; // true from connect() until endChat()
+    private static boolean            everOpened      = false; // has this chat been open at least once?
+    private static ScheduledFuture<?> pendingRetry    = null;
+    private static long               openStartedAt   = 0L;    // nanoTime of the latest newWebSocket() (for NetworkTimings)
+
+    public static ConnectionState getState() { return state; }
+
     // ================================================================================
     // Connect to the WebSocket
     // ================================================================================
-    public static void connect() { connect(3); }
+    /** Start a new chat connection. Retries with backoff until endChat() is called. Reconnects within the chat resume its session. */
+    public static synchronized void connect() {
+        chatWanted = true;
+        everOpened = false;
+        ChatSession.reset(); // a new chat is a new conversation
+        Speculation.reset();
+        BACKOFF.reset();
+        openSocket();
+    }
 
-    private static void connect(final int retriesRemaining) {
+    private static synchronized void openSocket() {
+        if (!chatWanted) { return; } // endChat() raced with a scheduled retry
+        cancelRetry();
         final String authToken = TokenManager.getAccessToken();
 
         // 1. Safety Check: Don't try to connect if we don't have a token yet
         if (authToken == null || authToken.isEmpty()) {
-            Log.e(TAG, String.format("%s Cannot connect: Token is missing. Retrying login...", TAG));
-            TokenManager.initialLogin(()->{}); // trigger a login instead
+            Log.e(TAG, String.format("%s Cannot connect: Token is missing. Waiting for login...", TAG));
+            setState(ConnectionState.BACKING_OFF);
+            // Joins the login already in flight (if any) and connects the moment it lands
+            TokenManager.ensureToken().whenComplete((token, err) -> RECONNECT.execute(() -> onTokenResult(err)));
             return;
         }
 
-        // 2. Build WebSocket address using the access token
-        HttpUrl url = BackendURLs.getWebSocketURL(authToken);
-        Log.d(TAG, String.format("%s Connecting to: %s (Retries left: %d)", TAG, url, retriesRemaining));
+        // 2. Build WebSocket address using the access token (plus the resume parameters when reconnecting mid-chat)
+        HttpUrl url = ChatSession.applyTo(BackendURLs.getWebSocketURL(authToken));
+        Log.d(TAG, String.format("%s Connecting to: %s (attempt %d)", TAG, url, BACKOFF.attempts() + 1));
+        setState(ConnectionState.CONNECTING);
 
         // 3. Create the Request
         Request req = new Request.Builder().url(url).build();
 
-        // 4. Instantiate the Listener with the retry count
-        // We pass 'retriesRemaining' to the listener so it knows if it should retry on failure
-        listenerInstance = new ChatUICallbacks(retriesRemaining);
+        // 4. Instantiate the Listener
+        listenerInstance = new ChatUICallbacks();
 
         // 5. Open the connection
         // Note: We do NOT call StatusController.startSuccess() here.
         // We let listenerInstance.onOpen() do that when it actually connects.
+        openStartedAt = System.nanoTime();
+        wire = WireFormat.JSON; // until this socket's server proves it speaks the binary format
         SOCKET = CLIENT.newWebSocket(req, listenerInstance);
     }
 
     // --------------------------------------------------------------------------------
     // Retry the connection
     // --------------------------------------------------------------------------------
-    // Helper to trigger a retry from the Listener
-    public static void triggerRetry(final int retriesLeft) {
-        if (retriesLeft > 0) {
-            Log.d(TAG, "Retrying connection in 3 seconds...");
-            new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
-                @Override public void run() { connect(retriesLeft - 1); }
-            }, 3000);
-        } else {
-            Log.e(TAG, "All connection retries failed.");
-            StatusController.showError("Connection Failed");
-            StatusController.stop();
+    /** Wait a jittered, growing delay and try again. Only gives up if the chat never managed to open. */
+    private static void scheduleRetry(String reason) {
+        if (!chatWanted) { setState(ConnectionState.CLOSED); return; }
+
+        if (!everOpened && BACKOFF.attempts() >= MAX_INITIAL_ATTEMPTS) {
+            Log.e(TAG, String.format("%s All connection retries failed (%s).", TAG, reason));
+            chatWanted = false;
+            setState(ConnectionState.CLOSED);
+            RECONNECT.execute(() -> StatusController.showError("Connection Failed")); // outside our lock
+            return;
         }
+
+        final long delay = BACKOFF.nextDelayMs();
+        Log.d(TAG, String.format("%s Retrying connection in %d ms (attempt %d, reason: %s)", TAG, delay, BACKOFF.attempts(), reason));
+        setState(ConnectionState.BACKING_OFF);
+        cancelRetry();
+        pendingRetry = RECONNECT.schedule(ChatSocketManager::openSocket, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** A login we were waiting on finished. Skipped if something else (network callback, endChat) already moved us on. */
+    private static synchronized void onTokenResult(Throwable err) {
+        if (!chatWanted || state != ConnectionState.BACKING_OFF || pendingRetry != null) { return; }
+        if (err == null) { openSocket(); }
+        else             { scheduleRetry("login failed"); }
+    }
+
+    private static void cancelRetry() {
+        if (pendingRetry != null) { pendingRetry.cancel(false); pendingRetry = null; }
+    }
+
+    /** Track the lifecycle state and report every transition to StatusController. */
+    private static void setState(ConnectionState next) {
+        final ConnectionState prev = state;
+        if (prev == next) { return; }
+        state = next;
+        Log.i(TAG, String.format("%s Connection state: %s -> %s", TAG, prev, next));
+        StatusController.onConnectionStateChanged(next);
     }
 
+    // --------------------------------------------------------------------------------
+    // Connectivity changes (called by NetworkMonitor)
+    // --------------------------------------------------------------------------------
+    /** Network is back: skip the rest of the backoff, or replace a socket that lived through the outage. */
+    public static synchronized void onNetworkAvailable() {
+        if (!chatWanted) { return; }
+        if (state == ConnectionState.BACKING_OFF) {
+            Log.i(TAG, String.format("%s Network available; reconnecting now", TAG));
+            BACKOFF.reset();
+            openSocket();
+        }
+        else if (state == ConnectionState.DEGRADED) {
+            // The old TCP connection is almost certainly bound to the network that just went away
+            Log.i(TAG, String.format("%s Network changed under an open socket; replacing it", TAG));
+            final WebSocket old = SOCKET;
+            SOCKET = null; isOpen = false;
+            Heartbeat.stop();
+            if (old != null) { old.cancel(); }
+            BACKOFF.reset();
+            openSocket();
+        }
+    }
+
+    /** Network is gone: an open socket is now suspect (it may still recover if the drop is short). */
+    public static synchronized void onNetworkLost() {
+        if (state == ConnectionState.OPEN) { setState(ConnectionState.DEGRADED); }
+    }
+
+    // ================================================================================
+    // Socket Lifecycle (called by ChatUICallbacks)
+    // ================================================================================
+    /** The socket is open: replay anything the server never acked, then send whatever is queued (no "commit" for
+     * speculations started on an earlier socket; see Speculation). */
+    static synchronized void onSocketOpen(WebSocket ws) {
+        if (ws != SOCKET) { return; } // stale attempt
+        NetworkTimings.recordWsOpen((System.nanoTime() - openStartedAt) / 1_000_000L); // OkHttp's EventListener doesn't see the upgrade
+        everOpened = true;
+        BACKOFF.reset();
+        setState(ConnectionState.OPEN);
+
+        isOpen = true;
+        Speculation.reset(); // partials sent on an earlier socket may never have arrived
+        QUEUE.requeueUnacked();
+        QUEUE.forEachPending(Speculation::supersede);
+        QUEUE.flush(ws, wire);
+        Heartbeat.start(ws);
+    }
+
+    /** The socket failed; hold outbound messages and schedule a retry. Ignores stale sockets. */
+    static synchronized void onSocketFailure(WebSocket ws, Throwable t) {
+        if (ws != SOCKET) { return; }
+        SOCKET = null; isOpen = false;
+        Heartbeat.stop();
+        scheduleRetry(String.valueOf(t.getMessage()));
+    }
+
+    /** The server closed the socket (e.g. a restart). Our own endChat() clears SOCKET first, so it is ignored here. */
+    static synchronized void onSocketClosed(WebSocket ws, int code) {
+        if (ws != SOCKET) { return; }
+        SOCKET = null; isOpen = false;
+        Heartbeat.stop();
+        scheduleRetry("closed by server, code " + code);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Heartbeat results (called by Heartbeat, never while it holds its own lock)
+    // --------------------------------------------------------------------------------
+    /** A beat went unanswered: the link is suspect but we keep the socket for now. */
+    static synchronized void onHeartbeatMissed(WebSocket ws) {
+        if (ws == SOCKET && state == ConnectionState.OPEN) { setState(ConnectionState.DEGRADED); }
+    }
+
+    /** The server answered again after missed beats. */
+    static synchronized void onHeartbeatRecovered(WebSocket ws) {
+        if (ws == SOCKET && state == ConnectionState.DEGRADED) { setState(ConnectionState.OPEN); }
+    }
+
+    /** Too many missed beats: the socket is half-open. Kill it and let the reconnect logic take over. */
+    static synchronized void onHeartbeatDead(WebSocket ws) {
+        if (ws != SOCKET) { return; }
+        SOCKET = null; isOpen = false;
+        ws.cancel(); // its onFailure will be ignored as stale
+        scheduleRetry("heartbeat timeout");
+    }
+
+    /** The server sent a binary frame, so it accepted our "enc" offer: write binary from now on. */
+    static synchronized void onBinaryFrame(WebSocket ws) {
+        if (ws != SOCKET || wire == WireFormat.CBOR_V1) { return; }
+        wire = WireFormat.CBOR_V1;
+        Log.i(TAG, String.format("%s Server accepted binary framing; switching outbound to %s", TAG, wire));
+    }
+
+    /** How to write frames on the current socket. */
+    static WireFormat wireFormat() { return wire; }
+
+    /** The server acknowledged one of our messages (see MessageHandler). */
+    static void onAck(long seq) { QUEUE.ack(seq); }
+
     // ================================================================================
     // WebSocket Utility
     // ================================================================================
-    /** Send JSON to the WebSocket safely */
-    public static void sendJson(String json) {
-        if (SOCKET != null) { SOCKET.send(json); }
-        else { Log.w(TAG, "Attempted to send message, but Socket is null."); }
+    /** Queue a message and send it right away if the socket is open. Control messages go in the PRIORITY lane. */
+    private static void send(JSONObject json, OutboundQueue.Lane lane) {
+        QUEUE.enqueue(json, lane);
+        final WebSocket ws = SOCKET;
+        if (ws != null && isOpen) { QUEUE.flush(ws, wire); }
+        else { Log.d(TAG, String.format("%s Socket not open; message queued (%d pending)", TAG, QUEUE.pendingCount())); }
     }
 
     /** Send a string (automatically escapes quotes/special chars) */
@@ -95,24 +259,60 @@ public final class ChatSocketManager {
             JSONObject json = new JSONObject();
             json.put("type", "transcription");
             json.put("data", text);
-            sendJson(json.toString());
+            final String turn = TurnTracer.current();
+            if (turn != null) { json.put("turn_id", turn); } // lets the backend log the same turn
+            Speculation.resolve(json, text); // commits or supersedes what sendPartial() started
+            send(json, OutboundQueue.Lane.NORMAL);
+        } catch (Exception e) { Log.e(TAG, "Failed to format JSON", e); }
+    }
+
+    /** Forward an interim STT hypothesis so the backend can start early (best effort; see Speculation). */
+    public static void sendPartial(String text) {
+        final WebSocket ws = SOCKET;
+        if (ws == null || !isOpen) { return; } // a stale guess isn't worth queueing
+        try {
+            final JSONObject json = Speculation.partial(text);
+            if (json != null) { wire.send(ws, json); }
+        } catch (Exception e) { Log.e(TAG, "Failed to format JSON", e); }
+    }
+
+    /** The user talked over a streamed reply: ask the backend to stop generating it. Best effort and never replayed
+     * (a late cancel could hit the next reply); nothing is sent without a reply id (a plain llm_response is complete anyway). */
+    public static void sendCancel(@Nullable String id) {
+        final WebSocket ws = SOCKET;
+        if (id == null || ws == null || !isOpen) { return; }
+        try {
+            JSONObject json = new JSONObject();
+            json.put("type", "cancel_response");
+            json.put("id", id);
+            wire.send(ws, json);
         } catch (Exception e) { Log.e(TAG, "Failed to format JSON", e); }
     }
 
     /** End the chat and clean up variables (sends a logic message first). */
-    public static void endChat() {
+    public static synchronized void endChat() {
+        chatWanted = false;
+        cancelRetry();
+        Heartbeat.stop();
+
         if (SOCKET != null) {
             try {
                 JSONObject json = new JSONObject();
                 json.put("type", "end_chat");
                 json.put("data", System.currentTimeMillis());
-                SOCKET.send(json.toString());
+                send(json, OutboundQueue.Lane.PRIORITY);
 
             } catch (Exception ignored) { }
 
             // Close code 1000 = Normal Closure
             SOCKET.close(1000, "user ended"); SOCKET = null;
         }
+        // Whatever is left belongs to the conversation that just ended
+        isOpen = false;
+        QUEUE.clear();
+        ChatSession.reset();
+        Speculation.reset();
+        setState(ConnectionState.CLOSED);
     }
 
 }
@@ -3,12 +3,12 @@ package com.example.buddychat.network.ws;
 import android.util.Log;
 import androidx.annotation.NonNull;
 
+import okio.ByteString;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
 
 import com.example.buddychat.chat.StatusController;
-import com.example.buddychat.utils.UiUtils;
 
 // ================================================================================
 // Handles the WebSocket responses (NOT static)
@@ -18,27 +18,24 @@ import com.example.buddychat.utils.UiUtils;
 public final class ChatUICallbacks extends WebSocketListener {
     private static final String TAG  = "[DPU_ChatListener]";
 
-    // Store the number of retries left for this specific connection attempt
-    private final int retriesRemaining;
-
-    // Constructor: Now accepts the retry count
-    public ChatUICallbacks(int retriesRemaining) {
-        this.retriesRemaining = retriesRemaining;
-    }
-
     // --------------------------------------------------------------------------------
     // ChatListener
     // --------------------------------------------------------------------------------
     @Override public void onOpen(@NonNull WebSocket ws, @NonNull Response res) {
         Log.d(TAG, String.format("%s WebSocket successfully opened, response: %s", TAG, res));
-        StatusController.startSuccess(); // Tell StatusController we succeeded
-        UiUtils.showToast("Connected to Server");
+        ChatSocketManager.onSocketOpen(ws); // Flush queued/unacked messages
+        StatusController.startSuccess(); // Tell StatusController we succeeded (it stays quiet on a mid-chat reconnect)
     }
 
     @Override public void onMessage(@NonNull WebSocket ws, @NonNull String text) {
         MessageHandler.onMessage(text);
     }
 
+    @Override public void onMessage(@NonNull WebSocket ws, @NonNull ByteString bytes) {
+        ChatSocketManager.onBinaryFrame(ws); // The server speaks the compact format; answer in kind
+        MessageHandler.onMessage(bytes.toByteArray());
+    }
+
     @Override public void onClosing(@NonNull WebSocket ws, int code, @NonNull String reason) {
         Log.d(TAG, String.format("%s Closing: %s", TAG, reason));
         ws.close(code, reason);
@@ -46,13 +43,13 @@ public final class ChatUICallbacks extends WebSocketListener {
 
     @Override public void onClosed(@NonNull WebSocket ws, int code, @NonNull String reason) {
         Log.d(TAG, String.format("%s WebSocket closed: %s", TAG, reason));
+        ChatSocketManager.onSocketClosed(ws, code);
     }
 
-    // OnFailure, ask the ChatSocketManager to retry
+    // OnFailure, ask the ChatSocketManager to retry (it decides on the backoff delay)
     @Override public void onFailure(@NonNull WebSocket ws, @NonNull Throwable t, Response res) {
-        // Tell StatusController we failed (and to cancel)
         Log.d(TAG, String.format("%s Connection failed: %s", TAG, t.getMessage()));
-        ChatSocketManager.triggerRetry(retriesRemaining);
+        ChatSocketManager.onSocketFailure(ws, t);
     }
 
 }
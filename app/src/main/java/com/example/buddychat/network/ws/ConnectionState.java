@@ -0,0 +1,13 @@
+package com.example.buddychat.network.ws;
+
+// ================================================================================
+// Lifecycle states of the chat WebSocket
+// ================================================================================
+/** Reported to StatusController by ChatSocketManager on every transition. <ul>
+ *     <li> CONNECTING  -- a socket is being opened (first attempt or a retry) </li>
+ *     <li> OPEN        -- the socket is open and messages are flowing </li>
+ *     <li> DEGRADED    -- the socket is still open, but the network dropped out underneath it </li>
+ *     <li> BACKING_OFF -- the last attempt failed; waiting before the next retry </li>
+ *     <li> CLOSED      -- no chat; nothing will be retried </li>
+ * </ul> */
+public enum ConnectionState { CONNECTING, OPEN, DEGRADED, BACKING_OFF, CLOSED }
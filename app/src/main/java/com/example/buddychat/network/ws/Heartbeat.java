@@ -0,0 +1,143 @@
+package com.example.buddychat.network.ws;
+
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+import okhttp3.WebSocket;
+
+import com.example.buddychat.utils.metrics.LatencyStats;
+
+// ================================================================================
+// Application-level heartbeat on the chat WebSocket
+// ================================================================================
+/** Heartbeat <br>
+ * Every few seconds we send {"type":"ping","id":N} and the server answers {"type":"pong","id":N}. <ul>
+ *     <li> The round-trip time of each pong goes into a rolling window (RTT) that the rest of the app can read. </li>
+ *     <li> One missed beat marks the link DEGRADED; MAX_MISSED in a row declares the socket dead, and
+ *          ChatSocketManager tears it down so the normal reconnect logic takes over. </li>
+ *     <li> Dead-link detection only kicks in once the server has answered at least one ping, so a
+ *          backend without pong support never gets its sockets killed. </li>
+ * </ul>
+ * Pings go straight to the socket (not through OutboundQueue) -- a stale ping is useless after a reconnect. */
+public final class Heartbeat {
+    private static final String TAG = "[DPU_Heartbeat]";
+    private Heartbeat() {} // no instances
+
+    // Configuration
+    private static final long INTERVAL_MS = 5_000L;  // time between pings
+    private static final int  MAX_MISSED  = 3;       // unanswered pings before the link is declared dead
+    private static final long SLOW_RTT_MS = 1_500L;  // median RTT above this counts as a slow link
+
+    // Rolling RTT window (~5 minutes of beats)
+    public static final LatencyStats RTT = new LatencyStats("rtt", 60);
+
+    // Beat state (guarded by the class lock)
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor();
+    private static ScheduledFuture<?> task          = null;
+    private static WebSocket          socket        = null;
+    private static long               nextId        = 1;
+    private static long               pendingId     = -1;    // id of the newest unanswered ping
+    private static long               pendingAt     = 0L;    // when it was sent (nanoTime)
+    private static int                missed        = 0;     // beats in a row without any pong
+    private static boolean            serverAnswers = false; // has the backend ever answered a ping?
+    private static volatile boolean   slow          = false;
+
+    // --------------------------------------------------------------------------------
+    // Public Access
+    // --------------------------------------------------------------------------------
+    /** Most recent round-trip time in ms (-1 before the first pong). */
+    public static long getRttMs() { return RTT.last(); }
+
+    /** True while the median RTT is above SLOW_RTT_MS (e.g. to show a "thinking" face sooner). */
+    public static boolean isLinkSlow() { return slow; }
+
+    // --------------------------------------------------------------------------------
+    // Lifecycle (called by ChatSocketManager)
+    // --------------------------------------------------------------------------------
+    /** Start beating on a freshly opened socket (replaces any previous one). */
+    static synchronized void start(WebSocket ws) {
+        stop();
+        socket = ws;
+        missed = 0;
+        task   = TIMER.scheduleWithFixedDelay(Heartbeat::beat, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stop beating (socket closed/failed or chat ended). */
+    static synchronized void stop() {
+        if (task != null) { task.cancel(false); task = null; }
+        socket    = null;
+        pendingId = -1;
+    }
+
+    /** Handle a "pong" from the server. Any pong proves the link is alive; only the newest one is timed. */
+    static void onPong(long id) {
+        final WebSocket recovered;
+        synchronized (Heartbeat.class) {
+            serverAnswers = true;
+            recovered = (missed > 0) ? socket : null;
+            missed = 0;
+            if (id == pendingId) { recordRtt(id); }
+        }
+        // ChatSocketManager calls back into start()/stop(), so never call it while holding our lock
+        if (recovered != null) { ChatSocketManager.onHeartbeatRecovered(recovered); }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Internal Logic
+    // --------------------------------------------------------------------------------
+    private static void recordRtt(long id) {
+        final long rtt = (System.nanoTime() - pendingAt) / 1_000_000L;
+        RTT.record(rtt);
+        pendingId = -1;
+        Log.d(TAG, String.format("%s pong id=%d rtt=%d ms", TAG, id, rtt));
+
+        final boolean nowSlow = RTT.percentile(50) > SLOW_RTT_MS;
+        if (nowSlow != slow) {
+            slow = nowSlow;
+            Log.w(TAG, String.format("%s Link is %s (%s)", TAG, nowSlow ? "SLOW" : "back to normal", RTT.summary()));
+        }
+    }
+
+    private static void beat() {
+        WebSocket dead = null, late = null;
+        synchronized (Heartbeat.class) {
+            final WebSocket ws = socket;
+            if (ws == null) { return; }
+
+            // The previous ping is still unanswered
+            if (pendingId > 0) {
+                missed++;
+                Log.w(TAG, String.format("%s Missed heartbeat #%d (id=%d)", TAG, missed, pendingId));
+                if      (serverAnswers && missed >= MAX_MISSED) { dead = ws; stop(); }
+                else if (serverAnswers                        ) { late = ws; }
+            }
+            if (dead == null) { sendPing(ws); }
+        }
+
+        if (dead != null) {
+            Log.e(TAG, String.format("%s %d heartbeats missed; declaring the link dead", TAG, MAX_MISSED));
+            ChatSocketManager.onHeartbeatDead(dead);
+        }
+        else if (late != null) { ChatSocketManager.onHeartbeatMissed(late); }
+    }
+
+    /** Send the next ping (only one is tracked at a time; RTT is measured against the newest). */
+    private static void sendPing(WebSocket ws) {
+        try {
+            final long id = nextId++;
+            JSONObject json = new JSONObject();
+            json.put("type", "ping");
+            json.put("id",   id);
+            pendingId = id;
+            pendingAt = System.nanoTime();
+            ChatSocketManager.wireFormat().send(ws, json);
+        } catch (Exception e) { Log.e(TAG, String.format("%s Failed to send ping: %s", TAG, e.getMessage())); }
+    }
+
+}
@@ -2,13 +2,20 @@ package com.example.buddychat.network.ws;
 
 import android.util.Log;
 
+import com.example.buddychat.chat.LanguageSwitcher;
+import com.example.buddychat.chat.TurnTracer;
 import com.example.buddychat.stt.BuddySTT;
 import com.example.buddychat.tts.BuddyTTS;
+import com.example.buddychat.tts.SentenceAssembler;
+import com.example.buddychat.tts.SpeechScheduler.Outcome;
+import com.example.buddychat.tts.SpeechScheduler.Policy;
+import com.example.buddychat.tts.SpeechScheduler.Priority;
 import com.example.buddychat.utils.behavior.Emotions;
 import com.example.buddychat.utils.behavior.IntentDetector;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.example.buddychat.network.ws.codec.Frame;
+import com.example.buddychat.network.ws.codec.FrameCodec;
+import com.example.buddychat.network.ws.codec.FrameHandler;
 
 // ================================================================================
 // Handle different types of WS messages
@@ -17,54 +24,108 @@ public final class MessageHandler {
     private static final String TAG = "[DPU_MessageHandler]";
 
     // --------------------------------------------------------------------------------
-    // Public Message Handler
+    // Handler Registry (one entry per message "type"; new types only need a line here)
     // --------------------------------------------------------------------------------
-    public static void onMessage(String raw) {
-        try {
-            // Process the data we received & act accordingly
-            JSONObject obj  = new JSONObject(raw);
-            String type     = obj.optString("type", "");
-
-            switch (type) {
-                case "llm_response" : onLLMResponse(obj); break;
-                case "affect"       : onAffect     (obj); break;
-                case "expression"   : onExpression (obj); break;
-            }
-
-        } catch (JSONException e) { Log.e(TAG, String.format("%s Bad JSON: %s", TAG, e.getMessage())); }
+    // Conversational frames go through resumable() so a replay after a session resume is only handled once
+    private static final FrameCodec CODEC = new FrameCodec()
+            .register("llm_response", resumable(MessageHandler::onLLMResponse))
+            .register("llm_delta",    resumable(MessageHandler::onLLMDelta   ))
+            .register("llm_done",     resumable(MessageHandler::onLLMDone    ))
+            .register("affect",       resumable(MessageHandler::onAffect     ))
+            .register("expression",   resumable(MessageHandler::onExpression ))
+            .register("language",     f -> LanguageSwitcher.request(f.getString("data", null), "backend"))
+            .register("session",      MessageHandler::onSession)
+            .register("ack",          MessageHandler::onAck    )
+            .register("pong",         f -> Heartbeat.onPong(f.getLong("id", -1L)));
+
+    private static FrameHandler resumable(FrameHandler h) {
+        return f -> { if (ChatSession.accept(f.getLong("server_seq", -1L))) { h.handle(f); } };
     }
 
+    // --------------------------------------------------------------------------------
+    // Public Message Handler
+    // --------------------------------------------------------------------------------
+    /** Called on the OkHttp reader thread for every text frame. Malformed/unknown frames are logged by the codec. */
+    public static void onMessage(String raw) { CODEC.dispatch(raw); }
+
+    /** Same for binary frames (compact encoding negotiated at connect, see WireFormat). */
+    public static void onMessage(byte[] bytes) { CODEC.dispatch(bytes); }
+
     // --------------------------------------------------------------------------------
     // Individual Message Types
     // --------------------------------------------------------------------------------
     /** Handle "llm_response" data from the backend (an utterance from the LLM). */
-    private static void onLLMResponse(JSONObject obj) {
+    private static void onLLMResponse(Frame f) {
         // Parse and log the message
-        final String body = obj.optString("data", "(empty)");
-        final String time = obj.optString("time", "");
+        final String body = f.getString("data", "(empty)");
+        final String time = f.getString("time", "");
         Log.i(TAG, String.format("%s %s: %s", TAG, time, body));
 
         // Return early if the message is empty
         if (body.equals("(empty)")) { return; }
+        TurnTracer.mark(TurnTracer.Stage.FIRST_REPLY);
 
         // Speak the response ToDo: Just changed this to go before IntentDetector
-        BuddyTTS.speak(body, BuddySTT::start); // ToDo: Also set this to restart the STT service on completion
+        // A newer response replaces this one if it hasn't started yet; only the one that ends the turn restarts STT
+        BuddyTTS.speak(body, null, Priority.REPLY, Policy.REPLACE_LATEST, outcome -> {
+            if (outcome != Outcome.SPOKEN && outcome != Outcome.DROPPED) { return; } // replaced, interrupted or preempted
+            TurnTracer.mark(TurnTracer.Stage.TTS_END);
+            BuddySTT.start();
+        });
 
         // Check the LLMs utterance for action cues (e.g. nod yes for "of course", "sure", etc...)
         IntentDetector.IntentDetection(body);
     }
 
+    /** Handle "llm_delta" data (one streamed chunk of an LLM utterance). Spoken sentence-by-sentence as it arrives. */
+    private static void onLLMDelta(Frame f) {
+        final String chunk = f.getString("data", "");
+        final String id    = f.getString("id",   null);
+        if (chunk.isEmpty()) { return; }
+        SentenceAssembler.onDelta(id, chunk);
+    }
+
+    /** Handle "llm_done" data (end of a streamed LLM utterance). STT restarts once the last sentence is spoken. */
+    private static void onLLMDone(Frame f) {
+        final String id   = f.getString("id",   null);
+        final String time = f.getString("time", "");
+        Log.d(TAG, String.format("%s %s: llm_done (id=%s)", TAG, time, id));
+        SentenceAssembler.onDone(id);
+    }
+
     /** Handle "affect" data from the backend (valence+arousal emotion values for the face). */
-    private static void onAffect(JSONObject obj) {
-        final float valence = (float) obj.optDouble("valence", 0.5);
-        final float arousal = (float) obj.optDouble("arousal", 0.5);
+    private static void onAffect(Frame f) {
+        final float valence = (float) f.getDouble("valence", 0.5);
+        final float arousal = (float) f.getDouble("arousal", 0.5);
         Emotions.setMood("NEUTRAL"); // Buddy's expression must be "NEUTRAL" for these values
         Emotions.setPositivityEnergy(valence, arousal);
     }
 
+    /** Handle "session" data (sent when a socket opens; tells us whether a reconnect rebound to the same conversation). */
+    private static void onSession(Frame f) {
+        final String  id      = f.getString ("session_id",   null);
+        final String  token   = f.getString ("resume_token", null);
+        final boolean resumed = f.getBoolean("resumed",      false);
+        if (id == null) { return; }
+
+        // The server started over: a half-streamed reply will never get its llm_done, so don't wait for it,
+        // and an open speculation can't be committed
+        if (!ChatSession.onSession(id, token, resumed)) {
+            Speculation.reset(); // the new conversation never saw our partials
+            SentenceAssembler.reset();
+            BuddySTT.start();
+        }
+    }
+
+    /** Handle "ack" data (the server received one of our messages). */
+    private static void onAck(Frame f) {
+        final long seq = f.getLong("seq", -1L);
+        if (seq > 0) { ChatSocketManager.onAck(seq); }
+    }
+
     /** Handle "expression" data */
-    private static void onExpression(JSONObject obj) {
-        final String rawExpression = obj.optString("expression", "NEUTRAL");
+    private static void onExpression(Frame f) {
+        final String rawExpression = f.getString("expression", "NEUTRAL");
         Emotions.setMood(rawExpression, 1_000L);
     }
 
@@ -0,0 +1,171 @@
+package com.example.buddychat.network.ws;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import okhttp3.WebSocket;
+
+// ================================================================================
+// Outbound message queue for the chat WebSocket
+// ================================================================================
+/** OutboundQueue <br>
+ * Every outgoing message gets a sequence number ("seq") and waits here until the socket is open. <ul>
+ *     <li> Two lanes: PRIORITY (control messages like "end_chat") always goes out before NORMAL (transcriptions). </li>
+ *     <li> Sent messages stay "in flight" until the server acks their seq; after a reconnect they are replayed in order,
+ *          but only once this backend has acked something (one that never acks would get every message twice). </li>
+ *     <li> Bounded: when a lane is full the oldest message is dropped. Stale in-flight messages are not replayed. </li>
+ * </ul>
+ * No dedupe window: nothing queues the same message twice (every utterance is a new turn, replays go through
+ * requeueUnacked), and the text can't be the key because a user can say "yes" twice. The server can use "seq"
+ * to drop replays it has already processed. */
+public final class OutboundQueue {
+    private static final String TAG = "[DPU_OutboundQueue]";
+
+    public enum Lane { PRIORITY, NORMAL }
+
+    /** Called (under the queue lock) each time a message is written to the socket, first send or replay. */
+    public interface Sent { void onSent(JSONObject body); }
+
+    // Configuration
+    private final int  capacity;        // max messages per lane, and max messages tracked in flight
+    private final long maxReplayAgeMs;  // in-flight messages older than this are not replayed
+    private final @Nullable Sent sent;
+
+    // Queue state (all access is synchronized on this)
+    private final ArrayDeque<Entry>         priority = new ArrayDeque<>();
+    private final ArrayDeque<Entry>         normal   = new ArrayDeque<>();
+    private final LinkedHashMap<Long, Entry> inFlight = new LinkedHashMap<>(); // sent but not acked (insertion = seq order)
+    private long nextSeq = 1;
+    private boolean acking = false; // has the backend ever acked? (if not, nothing is replayed)
+
+    private static final class Entry {
+        final long       seq;
+        final Lane       lane;
+        final JSONObject body;
+        final long       createdAt;
+        Entry(long seq, Lane lane, JSONObject body, long createdAt) { this.seq = seq; this.lane = lane; this.body = body; this.createdAt = createdAt; }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Instantiate
+    // --------------------------------------------------------------------------------
+    /**
+     * @param capacity        max number of messages held per lane (>=1)
+     * @param maxReplayAgeMs  unacked messages older than this are discarded instead of replayed
+     * @param sent            notified of every message written to the socket (may be null)
+     */
+    public OutboundQueue(int capacity, long maxReplayAgeMs, @Nullable Sent sent) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.capacity       = capacity;
+        this.maxReplayAgeMs = maxReplayAgeMs;
+        this.sent           = sent;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Public API
+    // --------------------------------------------------------------------------------
+    /** Stamp the message with a seq and queue it. Returns the seq. */
+    public synchronized long enqueue(@NonNull JSONObject body, @NonNull Lane lane) {
+        final long now = nowMs();
+        final long seq = nextSeq++;
+        try { body.put("seq", seq); } catch (JSONException e) { Log.e(TAG, String.format("%s Failed to stamp seq: %s", TAG, e.getMessage())); }
+
+        final ArrayDeque<Entry> q = (lane == Lane.PRIORITY) ? priority : normal;
+        if (q.size() >= capacity) {
+            Entry dropped = q.pollFirst();
+            Log.w(TAG, String.format("%s %s lane full, dropping oldest (seq=%d)", TAG, lane, dropped != null ? dropped.seq : -1));
+        }
+        q.addLast(new Entry(seq, lane, body, now));
+        return seq;
+    }
+
+    /** Send everything we can (PRIORITY first), written in `format`. Messages stay queued if the socket refuses them. */
+    public synchronized void flush(@NonNull WebSocket ws, @NonNull WireFormat format) {
+        if (!drain(priority, ws, format)) return;
+        drain(normal, ws, format);
+    }
+
+    /** Server acknowledged a message; stop tracking it. */
+    public synchronized void ack(long seq) {
+        acking = true;
+        if (inFlight.remove(seq) == null) { Log.d(TAG, String.format("%s Ack for unknown/duplicate seq=%d", TAG, seq)); }
+    }
+
+    /** Put every unacked message back at the front of its lane (in seq order) so the next flush replays it.
+     * A backend that has never acked gets nothing replayed: to it, "unacked" doesn't mean "not received". */
+    public synchronized void requeueUnacked() {
+        if (inFlight.isEmpty()) return;
+        if (!acking) {
+            Log.d(TAG, String.format("%s Backend hasn't acked anything; not replaying %d sent message(s)", TAG, inFlight.size()));
+            inFlight.clear();
+            return;
+        }
+        final long now = nowMs();
+
+        // Walk newest -> oldest so addFirst leaves them in ascending seq order
+        final List<Entry> entries = new ArrayList<>(inFlight.values());
+        inFlight.clear();
+        int replayed = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            final Entry e = entries.get(i);
+            if (now - e.createdAt > maxReplayAgeMs) { continue; } // too old to be meaningful anymore
+            ((e.lane == Lane.PRIORITY) ? priority : normal).addFirst(e);
+            replayed++;
+        }
+        Log.i(TAG, String.format("%s Replaying %d unacked message(s) (%d expired)", TAG, replayed, entries.size() - replayed));
+    }
+
+    /** Drop everything (chat ended). Sequence numbers keep counting so the server never sees a reused seq. */
+    public synchronized void clear() {
+        priority.clear(); normal.clear(); inFlight.clear();
+    }
+
+    /** Let `edit` rewrite every queued (not yet sent) message, e.g. before a reconnect flushes them. */
+    public synchronized void forEachPending(@NonNull Consumer<JSONObject> edit) {
+        for (Entry e : priority) { edit.accept(e.body); }
+        for (Entry e : normal)   { edit.accept(e.body); }
+    }
+
+    public synchronized int pendingCount () { return priority.size() + normal.size(); }
+    public synchronized int inFlightCount() { return inFlight.size(); }
+
+    // --------------------------------------------------------------------------------
+    // Internal Logic
+    // --------------------------------------------------------------------------------
+    /** Send a lane in order; returns false if the socket stopped accepting messages. */
+    private boolean drain(ArrayDeque<Entry> q, WebSocket ws, WireFormat format) {
+        for (Iterator<Entry> it = q.iterator(); it.hasNext(); ) {
+            final Entry e = it.next();
+            if (!format.send(ws, e.body)) {
+                Log.w(TAG, String.format("%s Socket refused seq=%d; keeping it queued", TAG, e.seq));
+                return false;
+            }
+            it.remove();
+            trackInFlight(e);
+            if (sent != null) { sent.onSent(e.body); }
+        }
+        return true;
+    }
+
+    private void trackInFlight(Entry e) {
+        inFlight.put(e.seq, e);
+        if (inFlight.size() > capacity) { // backend isn't acking; don't grow forever
+            final Iterator<Long> oldest = inFlight.keySet().iterator();
+            oldest.next(); oldest.remove();
+        }
+    }
+
+    private static long nowMs() { return System.nanoTime() / 1_000_000L; }
+
+}
@@ -0,0 +1,91 @@
+package com.example.buddychat.network.ws;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// ================================================================================
+// Speculative transcriptions (let the LLM start while a result is still being held)
+// ================================================================================
+/** Speculation <br>
+ * The BuddySDK only delivers final results, so the one source of partials is STTCallbacks: while UtteranceCoalescer
+ * holds a result in case the sentence continues, the text so far goes out as
+ * {"type":"transcription_partial","spec_id":..,"rev":N,"data":..}. The backend may start generating on the
+ * latest rev but must hold its output. The final "transcription" then resolves it: <ul>
+ *     <li> "speculation":"commit"    - the final text matches the last rev we sent; the server releases what it started. </li>
+ *     <li> "speculation":"supersede" - the final text differs; the server drops the speculation and starts over. </li>
+ * </ul>
+ * Partials are best effort: they bypass the OutboundQueue (no seq, never replayed) and are dropped while the
+ * socket is down. So a speculation never outlives its socket or session: every socket open and every lost session
+ * resets it, and a final queued or replayed across a reconnect goes out as "supersede", never "commit". <br>
+ * A backend that doesn't know "transcription_partial" ignores it and sees a plain transcription. */
+final class Speculation {
+    private static final String TAG = "[DPU_Speculation]";
+    private Speculation() {} // no instances
+
+    private static final long MIN_GAP_MS = 150; // at most one rev per this interval (the recognizer can fire much faster)
+
+    private static long   nextId  = 1;
+    private static String specId  = null;  // the open speculation (null = none)
+    private static int    rev     = 0;
+    private static String sentKey = null;  // normalized text of the last rev we sent
+    private static long   sentAt  = 0L;
+
+    // --------------------------------------------------------------------------------
+    // Called by ChatSocketManager
+    // --------------------------------------------------------------------------------
+    /** The message for a new interim hypothesis, or null if it adds nothing (same text, or too soon after the last rev). */
+    @Nullable static synchronized JSONObject partial(String text) throws JSONException {
+        final String key = normalize(text);
+        final long   now = System.nanoTime() / 1_000_000L;
+        if (key.isEmpty() || key.equals(sentKey) || (specId != null && now - sentAt < MIN_GAP_MS)) { return null; }
+
+        if (specId == null) { specId = "spec-" + (nextId++); rev = 0; }
+        rev++;
+        sentKey = key;
+        sentAt  = now;
+
+        final JSONObject json = new JSONObject();
+        json.put("type",    "transcription_partial");
+        json.put("spec_id", specId);
+        json.put("rev",     rev);
+        json.put("data",    text);
+        return json;
+    }
+
+    /** Tag a final transcription with the open speculation (if any) and close it. */
+    static synchronized void resolve(JSONObject json, String text) throws JSONException {
+        if (specId == null) { return; }
+        final boolean commit = normalize(text).equals(sentKey);
+        json.put("spec_id",     specId);
+        json.put("speculation", commit ? "commit" : "supersede");
+        Log.d(TAG, String.format("%s %s %s after %d rev(s)", TAG, commit ? "Committing" : "Superseding", specId, rev));
+        specId = null; rev = 0; sentKey = null;
+    }
+
+    /** Forget any open speculation (new chat, chat ended, new socket, lost session). */
+    static synchronized void reset() { specId = null; rev = 0; sentKey = null; }
+
+    /** A final resolved before the current socket opened: the server may never have seen its partials. */
+    static void supersede(JSONObject json) {
+        if (!"commit".equals(json.optString("speculation"))) { return; }
+        try                     { json.put("speculation", "supersede"); }
+        catch (JSONException e) { json.remove("speculation"); }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    /** Case, spacing and trailing punctuation don't change what the LLM should answer. */
+    private static String normalize(String s) {
+        final String t = s.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        int end = t.length();
+        while (end > 0 && ".?!,;".indexOf(t.charAt(end - 1)) >= 0) { end--; }
+        return t.substring(0, end).trim();
+    }
+
+}
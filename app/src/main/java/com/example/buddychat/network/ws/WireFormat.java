@@ -0,0 +1,31 @@
+package com.example.buddychat.network.ws;
+
+import org.json.JSONObject;
+
+import okio.ByteString;
+import okhttp3.WebSocket;
+
+import com.example.buddychat.network.ws.codec.BinaryFrames;
+
+// ================================================================================
+// How outbound frames are written on the current socket
+// ================================================================================
+/** WireFormat <br>
+ * The WebSocket URL offers "enc=cbor1" (BackendURLs). A backend that understands it answers with binary
+ * frames; the first one we receive switches this socket to CBOR_V1 (ChatSocketManager.onBinaryFrame).
+ * A backend that ignores the parameter keeps talking JSON and so do we. Every new socket starts as JSON,
+ * and inbound frames are accepted in either format. */
+public enum WireFormat {
+    JSON {
+        @Override boolean send(WebSocket ws, JSONObject json) { return ws.send(json.toString()); }
+    },
+    CBOR_V1 {
+        @Override boolean send(WebSocket ws, JSONObject json) { return ws.send(ByteString.of(BinaryFrames.encode(json))); }
+    };
+
+    /** Value of the "enc" query parameter that offers CBOR_V1. */
+    public static final String OFFER = "cbor1";
+
+    /** Write one message; false if the socket refused it (closing, or its send buffer is full). */
+    abstract boolean send(WebSocket ws, JSONObject json);
+}
@@ -0,0 +1,217 @@
+package com.example.buddychat.network.ws.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.json.JSONObject;
+
+// ================================================================================
+// Compact binary framing (schema v1)
+// ================================================================================
+/** BinaryFrames <br>
+ * A binary WebSocket message is one schema-version byte followed by a CBOR (RFC 8949) map of the same
+ * top-level fields the JSON frame would have. The WebSocket frame already delimits the message, so no
+ * separate length prefix is needed. <ul>
+ *     <li> Keys in the v1 dictionary (KEYS) are sent as their index: one byte instead of a quoted name. </li>
+ *     <li> Integers use the shortest CBOR encoding; doubles go as float32 when that is exact, otherwise float64. </li>
+ *     <li> Decoding fills the same Frame the JSON path uses, so handlers don't know which format arrived.
+ *          Nested values are skipped, as in the JSON scanner. </li>
+ * </ul>
+ * Only messages the two sides agreed on are sent this way; see WireFormat. */
+public final class BinaryFrames {
+    private BinaryFrames() {} // no instances
+
+    public static final byte VERSION = 1;
+
+    // Schema v1 key dictionary. Append only: an index must never change meaning within a version.
+    private static final String[] KEYS = {
+            "type", "data", "id", "seq", "server_seq", "time", "valence", "arousal",
+            "expression", "session_id", "resume_token", "resumed",
+    };
+
+    // --------------------------------------------------------------------------------
+    // Encode (outbound)
+    // --------------------------------------------------------------------------------
+    /** Encode a flat JSON message (nested values are sent as their JSON text). */
+    public static byte[] encode(JSONObject json) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(VERSION);
+        writeHead(out, 5, json.length());
+
+        final Iterator<String> it = json.keys();
+        while (it.hasNext()) {
+            final String key = it.next();
+            final int    k   = keyIndex(key);
+            if (k >= 0) { writeHead(out, 0, k); }
+            else        { writeText(out, key);  }
+            writeValue(out, json.opt(key));
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, Object v) {
+        if      (v == null || v == JSONObject.NULL) { out.write(0xf6); }
+        else if (v instanceof Boolean)              { out.write((Boolean) v ? 0xf5 : 0xf4); }
+        else if (v instanceof Integer || v instanceof Long) {
+            final long n = ((Number) v).longValue();
+            if (n >= 0) { writeHead(out, 0, n);      }
+            else        { writeHead(out, 1, -1 - n); }
+        }
+        else if (v instanceof Number) {
+            final double d = ((Number) v).doubleValue();
+            final float  f = (float) d;
+            if (f == d) { out.write(0xfa); writeBytes(out, Float.floatToIntBits(f), 4);     }
+            else        { out.write(0xfb); writeBytes(out, Double.doubleToLongBits(d), 8); }
+        }
+        else { writeText(out, v.toString()); }
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String s) {
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeHead(out, 3, b.length);
+        out.write(b, 0, b.length);
+    }
+
+    /** CBOR initial byte + argument, using the shortest form. */
+    private static void writeHead(ByteArrayOutputStream out, int major, long n) {
+        final int m = major << 5;
+        if      (n < 24     ) { out.write(m | (int) n); }
+        else if (n < 0x100  ) { out.write(m | 24); writeBytes(out, n, 1); }
+        else if (n < 0x10000) { out.write(m | 25); writeBytes(out, n, 2); }
+        else if (n < 0x100000000L) { out.write(m | 26); writeBytes(out, n, 4); }
+        else                  { out.write(m | 27); writeBytes(out, n, 8); }
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, long v, int n) {
+        for (int i = n - 1; i >= 0; i--) { out.write((int) (v >>> (8 * i)) & 0xff); }
+    }
+
+    private static int keyIndex(String key) {
+        for (int i = 0; i < KEYS.length; i++) { if (KEYS[i].equals(key)) return i; }
+        return -1;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Decode (inbound)
+    // --------------------------------------------------------------------------------
+    /** Decode one binary message into `frame`. Throws IllegalArgumentException on anything malformed or an unknown version. */
+    static void decode(byte[] in, Frame frame) {
+        if (in.length < 2 || in[0] != VERSION) throw new IllegalArgumentException("unsupported binary frame version");
+        final Reader r = new Reader(in);
+        r.pos = 1;
+
+        final int head = r.u8();
+        if (head >>> 5 != 5) throw new IllegalArgumentException("expected a map");
+        final long n = r.arg(head);
+
+        // Values are rendered as text into one buffer so the Frame can keep working on offsets
+        final StringBuilder sb  = new StringBuilder(in.length + 32);
+        final int[]         off = new int[(int) Math.min(n, 64) * 4];
+        int fields = 0;
+        for (long i = 0; i < n; i++) {
+            final int nStart = sb.length();
+            final boolean keyOk = r.key(sb);
+            final int nEnd   = sb.length();
+            final boolean valOk = r.scalar(sb);
+            if (!keyOk || !valOk || fields * 4 >= off.length) { sb.setLength(nStart); continue; }
+            off[fields * 4] = nStart; off[fields * 4 + 1] = nEnd; off[fields * 4 + 2] = nEnd; off[fields * 4 + 3] = sb.length();
+            fields++;
+        }
+
+        frame.reset(sb.toString());
+        for (int i = 0; i < fields; i++) { frame.put(off[i * 4], off[i * 4 + 1], off[i * 4 + 2], off[i * 4 + 3], false); }
+    }
+
+    /** Cursor over one CBOR item stream (only the parts we need; anything else is skipped). */
+    private static final class Reader {
+        final byte[] b;
+        int pos;
+        Reader(byte[] b) { this.b = b; }
+
+        int u8() { return b[pos++] & 0xff; }
+
+        long be(int n) { long v = 0; for (int i = 0; i < n; i++) v = (v << 8) | u8(); return v; }
+
+        /** The argument of an initial byte (length/count/value). */
+        long arg(int head) {
+            final int info = head & 0x1f;
+            if (info < 24) return info;
+            switch (info) {
+                case 24: return be(1);
+                case 25: return be(2);
+                case 26: return be(4);
+                case 27: return be(8);
+                default: throw new IllegalArgumentException("indefinite lengths are not supported");
+            }
+        }
+
+        /** A map key: dictionary index or text. Returns false (after skipping it) for anything else. */
+        boolean key(StringBuilder sb) {
+            final int head = u8(), major = head >>> 5;
+            if (major == 0) {
+                final long k = arg(head);
+                if (k < KEYS.length) { sb.append(KEYS[(int) k]); return true; }
+                return false;
+            }
+            if (major == 3) { text(head, sb); return true; }
+            pos--; skip();
+            return false;
+        }
+
+        /** A scalar value rendered as text. Returns false (after skipping it) for null and nested values. */
+        boolean scalar(StringBuilder sb) {
+            final int head = u8(), major = head >>> 5;
+            switch (major) {
+                case 0: sb.append(arg(head));      return true;
+                case 1: sb.append(-1 - arg(head)); return true;
+                case 3: text(head, sb);            return true;
+                case 7:
+                    switch (head) {
+                        case 0xf4: sb.append("false"); return true;
+                        case 0xf5: sb.append("true");  return true;
+                        case 0xf9: sb.append(half((int) be(2)));                   return true;
+                        case 0xfa: sb.append(Float.intBitsToFloat((int) be(4)));   return true;
+                        case 0xfb: sb.append(Double.longBitsToDouble(be(8)));      return true;
+                        default  : return false; // null/undefined/simple
+                    }
+                default: pos--; skip(); return false;
+            }
+        }
+
+        void text(int head, StringBuilder sb) {
+            final int len = (int) arg(head);
+            if (pos + len > b.length) throw new IllegalArgumentException("truncated string");
+            sb.append(new String(b, pos, len, StandardCharsets.UTF_8));
+            pos += len;
+        }
+
+        /** Skip one complete item of any type. */
+        void skip() {
+            final int head = u8(), major = head >>> 5;
+            if (major == 7) {
+                if      (head == 0xf8) pos += 1;
+                else if (head == 0xf9) pos += 2;
+                else if (head == 0xfa) pos += 4;
+                else if (head == 0xfb) pos += 8;
+                return;
+            }
+            final long n = arg(head);
+            switch (major) {
+                case 2: case 3: pos += (int) n; break;
+                case 4: for (long i = 0; i < n;     i++) skip(); break;
+                case 5: for (long i = 0; i < n * 2; i++) skip(); break;
+                case 6: skip(); break; // tag: skip the tagged item
+                default: break;        // ints: the argument was the value
+            }
+            if (pos > b.length) throw new IllegalArgumentException("truncated item");
+        }
+
+        private static float half(int h) {
+            final int exp = (h >> 10) & 0x1f, mant = h & 0x3ff;
+            final float v = (exp == 0) ? mant * 0x1p-24f : (exp == 31) ? (mant == 0 ? Float.POSITIVE_INFINITY : Float.NaN) : (1 + mant / 1024f) * (float) Math.pow(2, exp - 15);
+            return ((h & 0x8000) != 0) ? -v : v;
+        }
+    }
+
+}
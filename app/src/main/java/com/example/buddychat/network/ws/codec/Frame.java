@@ -0,0 +1,136 @@
+package com.example.buddychat.network.ws.codec;
+
+import androidx.annotation.Nullable;
+
+// ================================================================================
+// One decoded inbound message
+// ================================================================================
+/** Frame <br>
+ * A flat, reusable view of one inbound message: its "type" plus the top-level scalar fields. <ul>
+ *     <li> Fields are stored as offsets into the raw frame text, so decoding allocates nothing;
+ *          a String is only created when a handler actually asks for a value. </li>
+ *     <li> Nested objects/arrays are skipped (no message type needs them yet). </li>
+ *     <li> The codec reuses one Frame for every message, so handlers must not hold on to it after they return. </li>
+ * </ul> */
+public final class Frame {
+    private static final int MAX_FIELDS = 16; // extra fields beyond this are ignored
+
+    private String raw = "";
+    private int typeIndex = -1;
+    private final int[]     nameStart  = new int[MAX_FIELDS];
+    private final int[]     nameEnd    = new int[MAX_FIELDS];
+    private final int[]     valueStart = new int[MAX_FIELDS];
+    private final int[]     valueEnd   = new int[MAX_FIELDS];
+    private final boolean[] escaped    = new boolean[MAX_FIELDS];
+    private int count = 0;
+
+    // --------------------------------------------------------------------------------
+    // Read access (used by FrameHandlers)
+    // --------------------------------------------------------------------------------
+    /** The message "type", or "" if the frame had none. */
+    public String type() { return typeIndex >= 0 ? value(typeIndex) : ""; }
+
+    /** Compare the type without allocating (used by the codec for dispatch). */
+    boolean typeEquals(String t) {
+        return typeIndex >= 0 && !escaped[typeIndex]
+                && valueEnd[typeIndex] - valueStart[typeIndex] == t.length()
+                && raw.regionMatches(valueStart[typeIndex], t, 0, t.length());
+    }
+
+    public boolean has(String name) { return indexOf(name) >= 0; }
+
+    public @Nullable String getString(String name, @Nullable String fallback) {
+        final int i = indexOf(name);
+        return i >= 0 ? value(i) : fallback;
+    }
+
+    public double getDouble(String name, double fallback) {
+        final int i = indexOf(name);
+        if (i < 0) return fallback;
+        try                             { return Double.parseDouble(value(i)); }
+        catch (NumberFormatException e) { return fallback; }
+    }
+
+    public long getLong(String name, long fallback) {
+        final int i = indexOf(name);
+        if (i < 0) return fallback;
+        final String v = value(i);
+        try                             { return Long.parseLong(v); }
+        catch (NumberFormatException e) {
+            try                              { return (long) Double.parseDouble(v); }
+            catch (NumberFormatException e2) { return fallback; }
+        }
+    }
+
+    public boolean getBoolean(String name, boolean fallback) {
+        final int i = indexOf(name);
+        return i >= 0 ? Boolean.parseBoolean(value(i)) : fallback;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Write access (used by FrameCodec)
+    // --------------------------------------------------------------------------------
+    void reset(String source) { raw = source; count = 0; typeIndex = -1; }
+
+    /** Record one field (strings without their quotes; numbers/booleans as written). Returns false if the frame is full. */
+    boolean put(int nStart, int nEnd, int vStart, int vEnd, boolean esc) {
+        if (count >= MAX_FIELDS) return false;
+        nameStart[count] = nStart; nameEnd[count] = nEnd;
+        valueStart[count] = vStart; valueEnd[count] = vEnd;
+        escaped[count] = esc;
+        if (typeIndex < 0 && nameIs(count, "type")) { typeIndex = count; }
+        count++;
+        return true;
+    }
+
+    boolean hasType() { return typeIndex >= 0; }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    private int indexOf(String name) {
+        for (int i = 0; i < count; i++) { if (nameIs(i, name)) return i; }
+        return -1;
+    }
+
+    private boolean nameIs(int i, String name) {
+        return nameEnd[i] - nameStart[i] == name.length() && raw.regionMatches(nameStart[i], name, 0, name.length());
+    }
+
+    /** Materialize a value (unescaping JSON string escapes if the field had any). */
+    private String value(int i) {
+        if (!escaped[i]) return raw.substring(valueStart[i], valueEnd[i]);
+        return unescape(raw, valueStart[i], valueEnd[i]);
+    }
+
+    private static String unescape(String s, int start, int end) {
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 >= end) { sb.append(c); continue; }
+            c = s.charAt(++i);
+            switch (c) {
+                case 'n' : sb.append('\n'); break;
+                case 't' : sb.append('\t'); break;
+                case 'r' : sb.append('\r'); break;
+                case 'b' : sb.append('\b'); break;
+                case 'f' : sb.append('\f'); break;
+                case 'u' :
+                    if (i + 4 < end) { sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16)); i += 4; }
+                    break;
+                default  : sb.append(c); break; // \" \\ \/
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder("Frame{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(raw, nameStart[i], nameEnd[i]).append('=').append(value(i));
+        }
+        return sb.append('}').toString();
+    }
+
+}
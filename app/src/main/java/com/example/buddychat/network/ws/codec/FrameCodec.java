@@ -0,0 +1,230 @@
+package com.example.buddychat.network.ws.codec;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// ================================================================================
+// Inbound message codec + typed handler registry
+// ================================================================================
+/** FrameCodec <br>
+ * Pull-parses each text frame in a single pass over the String (no JSONObject/JsonElement tree,
+ * no reader buffers) into a reused Frame, then dispatches on "type" to the handler registered for it. <ul>
+ *     <li> Decoding only records offsets; Strings are created lazily when a handler reads a field. </li>
+ *     <li> If "type" is the first field (which is how the backend writes it) and nobody handles that
+ *          type, the rest of the frame isn't even scanned. </li>
+ *     <li> Only top-level scalars are kept; nested values are skipped. </li>
+ * </ul>
+ * Binary frames (BinaryFrames) are decoded into the same Frame, so handlers work unchanged for either format. <br>
+ * Malformed frames and handler exceptions are logged and dropped (dispatch returns false), never thrown to the socket. <br>
+ * dispatch() is synchronized because the Frame is shared; in practice only the OkHttp reader thread calls it. */
+public final class FrameCodec {
+    private static final String TAG = "[DPU_FrameCodec]";
+
+    // Registry (a handful of types, so a linear scan beats hashing a freshly allocated key)
+    private final List<String>       types    = new ArrayList<>();
+    private final List<FrameHandler> handlers = new ArrayList<>();
+    private final Frame frame = new Frame();
+
+    // Cursor state for the frame being decoded
+    private String src;
+    private int    pos;
+
+    // --------------------------------------------------------------------------------
+    // Registry
+    // --------------------------------------------------------------------------------
+    /** Register the handler for a message type (replaces any previous one). Returns this for chaining. */
+    public synchronized FrameCodec register(String type, FrameHandler handler) {
+        final int i = types.indexOf(type);
+        if (i >= 0) { handlers.set(i, handler); }
+        else        { types.add(type); handlers.add(handler); }
+        return this;
+    }
+
+    public synchronized boolean handles(String type) { return types.contains(type); }
+
+    // --------------------------------------------------------------------------------
+    // Decode & Dispatch
+    // --------------------------------------------------------------------------------
+    /** Decode one text frame and run its handler. Returns false for malformed or unhandled frames. */
+    public synchronized boolean dispatch(String raw) {
+        final FrameHandler handler;
+        try {
+            handler = decode(raw);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            Log.e(TAG, String.format("%s Bad JSON: %s", TAG, e.getMessage()));
+            return false;
+        }
+
+        if (handler == null) {
+            Log.d(TAG, String.format("%s No handler for type: %s", TAG, frame.type()));
+            return false;
+        }
+        return run(handler);
+    }
+
+    /** Decode one binary frame (see BinaryFrames) and run its handler. Returns false for malformed or unhandled frames. */
+    public synchronized boolean dispatch(byte[] bytes) {
+        try {
+            BinaryFrames.decode(bytes, frame);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            Log.e(TAG, String.format("%s Bad binary frame: %s", TAG, e.getMessage()));
+            return false;
+        }
+
+        final FrameHandler handler = handlerFor();
+        if (handler == null) {
+            Log.d(TAG, String.format("%s No handler for type: %s", TAG, frame.type()));
+            return false;
+        }
+        return run(handler);
+    }
+
+    /** A handler that throws must not take the socket down with it (OkHttp fails the connection on an uncaught exception). */
+    private boolean run(FrameHandler handler) {
+        try {
+            handler.handle(frame);
+            return true;
+        } catch (RuntimeException e) {
+            Log.e(TAG, String.format("%s Handler for %s failed: %s", TAG, frame.type(), e));
+            return false;
+        }
+    }
+
+    /** Scan one JSON object into the Frame; returns the handler for its type (null if unhandled). */
+    private FrameHandler decode(String raw) {
+        src = raw; pos = 0;
+        frame.reset(raw);
+
+        expect('{');
+        skipWs();
+        if (peek() == '}') { pos++; expectEnd(); return null; }
+
+        boolean first = true;
+        while (true) {
+            // Name
+            skipWs(); expect('"');
+            final int nStart = pos;
+            scanString();
+            final int nEnd = pos - 1;
+            skipWs(); expect(':'); skipWs();
+
+            // Value (scalars are recorded, anything nested is skipped)
+            final char c = peek();
+            if (c == '"') {
+                pos++;
+                final int vStart = pos;
+                final boolean esc = scanString();
+                frame.put(nStart, nEnd, vStart, pos - 1, esc);
+            }
+            else if (c == '{' || c == '[') { skipNested(); }
+            else if (src.startsWith("null", pos)) { pos += 4; }
+            else {
+                final int vStart = pos;
+                scanLiteral();
+                frame.put(nStart, nEnd, vStart, pos, false);
+            }
+
+            // Fast exit: "type" came first and nobody wants it
+            if (first && frame.hasType() && handlerFor() == null) { return null; }
+            first = false;
+
+            skipWs();
+            final char sep = src.charAt(pos++);
+            if (sep == '}') break;
+            if (sep != ',') throw new IllegalArgumentException("expected ',' or '}' at " + (pos - 1));
+        }
+        expectEnd();
+        return handlerFor();
+    }
+
+    private FrameHandler handlerFor() {
+        for (int i = 0; i < types.size(); i++) { if (frame.typeEquals(types.get(i))) return handlers.get(i); }
+        return null;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Scanner helpers (operate on src/pos)
+    // --------------------------------------------------------------------------------
+    private char peek() { return src.charAt(pos); }
+
+    private void expect(char c) {
+        skipWs();
+        if (src.charAt(pos) != c) throw new IllegalArgumentException("expected '" + c + "' at " + pos);
+        pos++;
+    }
+
+    /** Nothing but whitespace may follow the closing brace. */
+    private void expectEnd() {
+        skipWs();
+        if (pos < src.length()) throw new IllegalArgumentException("trailing data at " + pos);
+    }
+
+    private void skipWs() {
+        while (pos < src.length()) {
+            final char c = src.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return;
+            pos++;
+        }
+    }
+
+    /** Advance past the closing quote of a string (pos starts after the opening one). Returns true if it had escapes.
+     * Escapes are checked here (\\u needs 4 hex digits), so Frame.value() can unescape without failing later. */
+    private boolean scanString() {
+        boolean esc = false;
+        while (true) {
+            final char c = src.charAt(pos++);
+            if (c == '"')  return esc;
+            if (c != '\\') continue;
+            esc = true;
+            final char e = src.charAt(pos++);
+            if (e == 'u') {
+                for (int k = 0; k < 4; k++) {
+                    if (Character.digit(src.charAt(pos++), 16) < 0) throw new IllegalArgumentException("bad \\u escape at " + (pos - 1));
+                }
+            }
+            else if ("\"\\/bfnrt".indexOf(e) < 0) { throw new IllegalArgumentException("bad escape at " + (pos - 1)); }
+        }
+    }
+
+    /** true, false or a JSON number (-?int[.frac][e[+-]exp]). */
+    private void scanLiteral() {
+        final int start = pos;
+        if      (src.startsWith("true",  pos)) { pos += 4; }
+        else if (src.startsWith("false", pos)) { pos += 5; }
+        else {
+            if (pos < src.length() && src.charAt(pos) == '-') pos++;
+            if (digits() == 0) throw new IllegalArgumentException("expected a value at " + start);
+            if (pos < src.length() && src.charAt(pos) == '.') { pos++; if (digits() == 0) throw new IllegalArgumentException("bad number at " + start); }
+            if (pos < src.length() && (src.charAt(pos) == 'e' || src.charAt(pos) == 'E')) {
+                pos++;
+                if (pos < src.length() && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
+                if (digits() == 0) throw new IllegalArgumentException("bad number at " + start);
+            }
+        }
+        // The value must end at a separator ("tru", "12ab" are rejected)
+        if (pos < src.length()) {
+            final char c = src.charAt(pos);
+            if (c != ',' && c != '}' && c != ' ' && c != '\n' && c != '\r' && c != '\t') throw new IllegalArgumentException("bad value at " + start);
+        }
+    }
+
+    private int digits() {
+        final int start = pos;
+        while (pos < src.length() && src.charAt(pos) >= '0' && src.charAt(pos) <= '9') pos++;
+        return pos - start;
+    }
+
+    /** Skip a whole object/array, including any strings inside it. */
+    private void skipNested() {
+        int depth = 0;
+        do {
+            final char c = src.charAt(pos++);
+            if      (c == '"')              { scanString(); }
+            else if (c == '{' || c == '[')  { depth++; }
+            else if (c == '}' || c == ']')  { depth--; }
+        } while (depth > 0);
+    }
+
+}
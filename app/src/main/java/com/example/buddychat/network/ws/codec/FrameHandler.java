@@ -0,0 +1,6 @@
+package com.example.buddychat.network.ws.codec;
+
+/** Handles one inbound message type (registered with FrameCodec). The Frame is only valid during the call. */
+public interface FrameHandler {
+    void handle(Frame frame);
+}
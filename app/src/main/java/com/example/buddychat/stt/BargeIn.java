@@ -0,0 +1,69 @@
+package com.example.buddychat.stt;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.buddychat.chat.TurnTracer;
+import com.example.buddychat.network.ws.ChatSocketManager;
+import com.example.buddychat.tts.BuddyTTS;
+import com.example.buddychat.tts.SentenceAssembler;
+
+// ================================================================================
+// Let the user talk over Buddy
+// ================================================================================
+/** BargeIn <br>
+ * When enabled, STT keeps listening while Buddy speaks, so every result is checked first (gate()). Buddy's own
+ * voice has already been removed by EchoFilter; what is left, if Buddy is talking and it is at least
+ * MIN_BARGE_WORDS long, is the user barging in: speech stops immediately, the rest of the reply is abandoned,
+ * and the backend is told to stop generating it ("cancel_response"). Shorter noise while talking is ignored. <br>
+ * Off by default (setEnabled): STT is then paused from the user's utterance until the reply has been spoken (the old
+ * behavior). Turn it on only where the echo gate has been validated on the robot; a missed echo cuts Buddy off. */
+public final class BargeIn {
+    private static final String TAG = "[DPU_BargeIn]";
+    private BargeIn() {} // no instances
+
+    // Configuration
+    private static volatile boolean enabled       = false;
+    private static final int     MIN_BARGE_WORDS  = 2;     // a lone "uh" doesn't cut Buddy off
+
+    // Metrics
+    private static final AtomicLong interruptions = new AtomicLong();
+
+    public static void    setEnabled(boolean on) { enabled = on; }
+    public static boolean isEnabled ()           { return enabled; }
+
+    /** What to do with a recognizer result. */
+    enum Verdict { PASS, NOISE, INTERRUPT }
+
+    // --------------------------------------------------------------------------------
+    // Called by STTCallbacks for every result
+    // --------------------------------------------------------------------------------
+    /** `heard` is already echo-filtered (EchoFilter.strip). */
+    static Verdict gate(String heard) {
+        if (!enabled || !BuddyTTS.isSpeaking()) { return Verdict.PASS; }
+        return (words(heard).length >= MIN_BARGE_WORDS) ? Verdict.INTERRUPT : Verdict.NOISE;
+    }
+
+    /** Stop talking, drop the rest of the reply, and ask the backend to stop generating it (streamed replies only). */
+    static void interrupt() {
+        final String id = SentenceAssembler.cancel();
+        BuddyTTS.stop();
+        ChatSocketManager.sendCancel(id);
+        TurnTracer.abandon("barge-in");
+        Log.i(TAG, String.format("%s User barged in (reply %s cancelled) | interruptions=%d %s",
+                TAG, id, interruptions.incrementAndGet(), EchoFilter.summary()));
+    }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    private static String[] words(@Nullable String s) {
+        if (s == null) { return new String[0]; }
+        final String t = s.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}' ]+", " ").trim();
+        return t.isEmpty() ? new String[0] : t.split("\\s+");
+    }
+
+}
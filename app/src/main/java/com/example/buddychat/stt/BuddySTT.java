@@ -2,12 +2,27 @@ package com.example.buddychat.stt;
 
 import android.content.Context;
 import android.util.Log;
+import androidx.annotation.Nullable;
 
 import com.bfr.buddy.speech.shared.ISTTCallback;
 import com.bfr.buddy.speech.shared.STTResult;
 import com.bfr.buddy.speech.shared.STTResultsData;
 import com.bfr.buddysdk.services.speech.STTTask;
-import com.bfr.buddysdk.BuddySDK;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.example.buddychat.network.ws.Heartbeat;
+import com.example.buddychat.stt.SetupSTT.Engine;
+import com.example.buddychat.utils.SpeechLanguage;
+import com.example.buddychat.utils.metrics.LatencyStats;
 
 // ================================================================================
 // Wrapper class around BuddySDK.Speech for Speech-to-Text
@@ -19,27 +34,108 @@ import com.bfr.buddysdk.BuddySDK;
  * Start, pause, and stop use that task as expected. <br>
  * We keep "listen continuous" because if we didn't, it would be a few seconds before we might be
  * able to start again. By just pausing and resuming, we should be able to have the same behavior.
- * See page 59 of the BuddySDK user guide for more details (version 2.4). */
+ * See page 59 of the BuddySDK user guide for more details (version 2.4). <br>
+ * A primary and a standby engine are both initialized; every start() asks EngineSelector which one to
+ * listen with, and an error that makes the selector give up on the listening engine restarts listening
+ * on the other one right away (hot failover). <br>
+ * Each task gets one ISTTCallback at init, and is started once there and paused again (warm-up).
+ * From then on start() is a resume of an already-initialized recognizer with the same callback, and switching
+ * engines pauses the old one instead of stopping it. RESUME / COLD_START measure start() -> task.isRunning(),
+ * i.e. how long after Buddy stops talking the user's words can actually be heard. <br>
+ * Tasks are created and warmed for every SpeechLanguage, so setLanguage() only pauses one task and resumes
+ * another; SWITCH measures setLanguage() -> the new language's recognizer running. */
 public final class BuddySTT {
     private static final String TAG = "[DPU_BuddySTT]";
     private BuddySTT() {} // Static-only class
 
     private static final boolean LISTEN_CONTINUOUS = true;
+    private static final long    POLL_MS           = 10L;
+    private static final long    POLL_TIMEOUT_MS   = 3_000L;
+
+    // Metrics (ms from start() to the recognizer reporting it is running)
+    static final LatencyStats RESUME     = new LatencyStats("stt_resume",     50);
+    static final LatencyStats COLD_START = new LatencyStats("stt_cold_start", 10);
+    static final LatencyStats SWITCH     = new LatencyStats("stt_language_switch", 20);
+    private static final ScheduledExecutorService PROBE = Executors.newSingleThreadScheduledExecutor();
 
-    private static STTTask task;
+    // Engines (all guarded by the class lock)
+    private static final Engine[] ENGINES = { SetupSTT.PRIMARY, SetupSTT.STANDBY };
+    private static final EnumMap<SpeechLanguage, EnumMap<Engine, STTTask>> byLanguage = new EnumMap<>(SpeechLanguage.class);
+    private static EnumMap<Engine, STTTask>             tasks     = new EnumMap<>(Engine.class);    // the active language's
+    private static final Map<STTTask, ISTTCallback>     listeners = new IdentityHashMap<>();       // one per task, reused by every start
+    private static final Set<STTTask>                   warm      = Collections.newSetFromMap(new IdentityHashMap<>()); // started at least once
+    private static final EngineSelector           SELECTOR = new EngineSelector(SetupSTT.PRIMARY, SetupSTT.STANDBY);
+    private static SpeechLanguage language = SpeechLanguage.DEFAULT;
+    private static Engine  listening   = null;  // engine whose task was started last
+    private static boolean listeningNow = false; // started and not paused/stopped/failed since
+    private static int    generation = 0;    // bumped by every start(); a pending latency probe from an older start gives up
+
+    private static volatile long startRequestedAt = 0L; // nanoTime of the latest start() call
     private static STTCallbacks sttCallbacks;
 
     // --------------------------------------------------------------------------------
     // Initialization -- Called once in MainActivity.onCreate
     // --------------------------------------------------------------------------------
-    /** Sets up microphone permissions, STTCallbacks, and the BuddySDK STTTask. */
-    public static void init(Context context, STTCallbacks callbacks) {
-        task = SetupSTT.initializeSTTTask(context);
+    /** Sets up microphone permissions, STTCallbacks, and the BuddySDK STTTasks (primary + standby, per language). */
+    public static synchronized void init(Context context, STTCallbacks callbacks) {
+        SetupSTT.checkMicPermission(context);
+        for (SpeechLanguage l : SpeechLanguage.values()) {
+            final EnumMap<Engine, STTTask> m = new EnumMap<>(Engine.class);
+            for (Engine e : ENGINES) {
+                final STTTask t = SetupSTT.initializeSTTTask(context, e, l);
+                if (t != null) { m.put(e, t); listeners.put(t, callbackFor(e, l)); }
+            }
+            byLanguage.put(l, m);
+        }
         sttCallbacks = callbacks;
+        use(language);
+        for (SpeechLanguage l : byLanguage.keySet()) {
+            for (Map.Entry<Engine, STTTask> e : byLanguage.get(l).entrySet()) { warmUp(e.getKey(), l, e.getValue()); }
+        }
     }
 
+    /** Start and immediately pause the task so the first real start() is a resume. */
+    private static void warmUp(Engine e, SpeechLanguage l, STTTask t) {
+        final long t0 = System.nanoTime();
+        try {
+            t.start(LISTEN_CONTINUOUS, listeners.get(t));
+            t.pause();
+            warm.add(t);
+            Log.d(TAG, String.format("%s Warmed up %s/%s in %d ms", TAG, e, l, (System.nanoTime() - t0) / 1_000_000L));
+        } catch (RuntimeException ex) {
+            Log.w(TAG, String.format("%s Warm-up of %s/%s failed: %s", TAG, e, l, ex.getMessage()));
+        }
+    }
+
+    /** Make `l`'s tasks the ones start() picks from (caller holds the lock). */
+    private static void use(SpeechLanguage l) {
+        language = l;
+        tasks    = byLanguage.get(l);
+        for (Engine e : ENGINES) { SELECTOR.setAvailable(e, tasks.containsKey(e)); }
+    }
+
+    /** The callback for one task; results from a paused or replaced listen are still reported. */
+    private static ISTTCallback callbackFor(Engine engine, SpeechLanguage lang) {
+        return new ISTTCallback.Stub() {
+            @Override public void onSuccess(STTResultsData res) {
+                final List<STTResult> results = res.getResults();
+                if (results == null || results.isEmpty()) { return; }
+                SELECTOR.onResult(engine);
+
+                // Rerank the N-best list; noise below the confidence floor never reaches the chat
+                final HypothesisRanker.Choice c = HypothesisRanker.pick(results);
+                if (c != null) { sttCallbacks.onText(c.text, c.confidence, c.rule); }
+            }
+            @Override public void onError(String e) { sttCallbacks.onError(e); onEngineError(engine, lang); }
+        };
+    }
+
+    // The task we are (or were last) listening with
+    private static STTTask task() { return tasks.get(listening != null ? listening : SELECTOR.active()); }
+
     // Check if the task (1) was initialized and (2) if the task is ready
     private static boolean ready() {
+        final STTTask task = task();
         if (task == null) {
             Log.w(TAG, String.format("%s isReady() -> false | task is null", TAG));
             return false;
@@ -51,25 +147,102 @@ public final class BuddySTT {
     // --------------------------------------------------------------------------------
     // Speech-to-Text Usage
     // --------------------------------------------------------------------------------
-    public static void    pause() { if (ready()) task.pause(); Log.d(TAG, String.format("%s STT paused",  TAG)); }
-    public static void    stop () { if (ready()) task.stop (); Log.d(TAG, String.format("%s STT stopped", TAG)); }
-    public static boolean start() {
-        if (task == null) { Log.e(TAG, String.format("%s STT start FAILURE (not available)", TAG)); return false; }
+    public static synchronized void    pause() { listeningNow = false; if (ready()) task().pause(); Log.d(TAG, String.format("%s STT paused",  TAG)); }
+    public static synchronized void    stop () { listeningNow = false; if (ready()) task().stop (); Log.d(TAG, String.format("%s STT stopped", TAG)); }
+    public static synchronized boolean start() { return start(null, System.nanoTime()); }
 
-        // Start the STTTask using the callbacks object we were initialized with
-        task.start(LISTEN_CONTINUOUS, new ISTTCallback.Stub() {
-            @Override public void onSuccess(STTResultsData res) {
-                if (!res.getResults().isEmpty()) {
-                    STTResult r = res.getResults().get(0);
-                    sttCallbacks.onText(r.getUtterance(), r.getConfidence(), r.getRule());
-                }
-            }
-            @Override public void onError(String e) { sttCallbacks.onError(e); }
-        });
+    /** `stats` null: RESUME or COLD_START, whichever this start is. */
+    private static boolean start(@Nullable LatencyStats stats, long requestedAt) {
+        startRequestedAt = requestedAt;
+        if (tasks.isEmpty()) { Log.e(TAG, String.format("%s STT start FAILURE (not available)", TAG)); return false; }
+
+        // Pick the engine; if it changed, pause the old one first (both can't own the microphone, but it stays warm)
+        final Engine  engine = SELECTOR.choose(Heartbeat.isLinkSlow());
+        final STTTask task   = tasks.get(engine);
+        if (listeningNow && engine == listening) { return true; } // already listening (barge-in keeps STT on through replies)
+        if (listening != null && listening != engine) {
+            final STTTask old = tasks.get(listening);
+            if (old != null && old.isRunning()) { old.pause(); }
+        }
+        listening    = engine;
+        listeningNow = true;
+        final int gen = ++generation;
+
+        // Resume the STTTask with the callback it was warmed up with
+        final boolean resume = warm.contains(task);
+        task.start(LISTEN_CONTINUOUS, listeners.get(task));
+        warm.add(task);
+        probeListening(task, stats != null ? stats : resume ? RESUME : COLD_START, requestedAt, gen);
 
-        // Return that our startup was a success
-        Log.d(TAG, String.format("%s STT start SUCCESS", TAG));
+        Log.d(TAG, String.format("%s STT %s SUCCESS (%s/%s)", TAG, resume ? "resume" : "start", engine, language));
         return true;
     }
 
+    // --------------------------------------------------------------------------------
+    // Language
+    // --------------------------------------------------------------------------------
+    public static synchronized SpeechLanguage language() { return language; }
+
+    /** Recognize `lang` from now on, using the tasks warmed for it at init (no initializeSTTTask). If we were
+     * listening, the old task is paused and the new one resumed right away. Before init this only picks the
+     * language init() starts with. Returns false (language unchanged) if `lang` has no usable task. */
+    public static synchronized boolean setLanguage(SpeechLanguage lang) {
+        if (lang == language) { return true; }
+        final long t0 = System.nanoTime();
+        if (byLanguage.isEmpty()) { language = lang; return true; } // not initialized yet
+        final EnumMap<Engine, STTTask> next = byLanguage.get(lang);
+        if (next == null || next.isEmpty()) {
+            Log.w(TAG, String.format("%s No STT task for %s; staying in %s", TAG, lang, language));
+            return false;
+        }
+
+        final SpeechLanguage from = language;
+        final boolean wasListening = listeningNow;
+        final STTTask old = (listening != null) ? tasks.get(listening) : null;
+        if (old != null && old.isRunning()) { old.pause(); }
+        listeningNow = false;
+        use(lang);
+
+        if (wasListening) { start(SWITCH, t0); } // recorded once the new recognizer reports it is running
+        else              { SWITCH.record((System.nanoTime() - t0) / 1_000_000L); }
+        Log.i(TAG, String.format("%s STT language %s -> %s (%s)", TAG, from, lang, wasListening ? "resumed" : "idle"));
+        return true;
+    }
+
+    /** Record start() -> isRunning() once the recognizer reports it is listening (polled; the SDK has no callback for it). */
+    private static void probeListening(STTTask task, LatencyStats stats, long requestedAt, int gen) {
+        final long elapsed = (System.nanoTime() - requestedAt) / 1_000_000L;
+        if (task.isRunning()) { stats.record(elapsed); return; }
+        if (elapsed >= POLL_TIMEOUT_MS) {
+            Log.w(TAG, String.format("%s Recognizer not running %d ms after start", TAG, elapsed));
+            return;
+        }
+        PROBE.schedule(() -> {
+            synchronized (BuddySTT.class) { if (gen != generation || !listeningNow) { return; } }
+            probeListening(task, stats, requestedAt, gen);
+        }, POLL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** nanoTime of the latest start() (0 if never); results before it belong to an earlier listen. */
+    static long lastStartRequest() { return startRequestedAt; }
+
+    /** Count the error; if the selector now prefers the other engine, move listening there immediately. */
+    private static synchronized void onEngineError(Engine engine, SpeechLanguage lang) {
+        if (lang != language) { return; } // a paused task of the other language; says nothing about the active one
+        SELECTOR.onError(engine);
+        if (engine != listening || !listeningNow) { return; } // not the listen in progress
+        listeningNow = false;
+        if (SELECTOR.choose(Heartbeat.isLinkSlow()) != engine) {
+            Log.w(TAG, String.format("%s %s failed; failing over to %s", TAG, engine, SELECTOR.active()));
+            start();
+        }
+    }
+
+    /** Log and return the per-engine health (latency, errors, which engine is active), resume and language switch latency, hypothesis ranking and echo counts. */
+    public static String dumpStats() {
+        final String s = SELECTOR.summary() + " | " + RESUME.summary() + " | " + COLD_START.summary() + " | " + SWITCH.summary() + " | " + HypothesisRanker.summary() + " | " + EchoFilter.summary();
+        Log.i(TAG, String.format("%s %s", TAG, s));
+        return s;
+    }
+
 }
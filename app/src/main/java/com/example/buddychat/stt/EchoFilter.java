@@ -0,0 +1,153 @@
+package com.example.buddychat.stt;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+import com.example.buddychat.tts.BuddyTTS;
+
+// ================================================================================
+// Drop Buddy's own voice from what STT heard
+// ================================================================================
+/** EchoFilter <br>
+ * Every utterance BuddyTTS starts is remembered as a set of hashed word pairs. While Buddy is talking each STT result
+ * is checked against the utterance being spoken and the one before it (the recognizer lags, so a result can hold the
+ * end of the previous sentence); for ECHO_TAIL_MS after Buddy stops, only against the last utterance: <ul>
+ *     <li> A word is "echo" only inside a run of MIN_RUN_PAIRS+ consecutive word pairs Buddy said, so a common pair on its
+ *          own ("are you", "do you") or a one-word answer ("yes", "no") is never taken for Buddy's voice. </li>
+ *     <li> ECHO_RATIO or more of the words echo: the whole result is Buddy's voice and is dropped. </li>
+ *     <li> Otherwise a leading echo run (the tail of Buddy's sentence, then the user) is cut off. </li>
+ * </ul>
+ * Outside that window nothing is touched, so a user repeating Buddy's words later is still heard. */
+public final class EchoFilter {
+    private static final String TAG = "[DPU_EchoFilter]";
+    private EchoFilter() {} // no instances
+
+    // Configuration
+    private static final long   MEMORY_MS      = 30_000L; // an older "previous utterance" is not checked
+    private static final int    RECENT         = 2;       // the utterance being spoken + the one before it
+    private static final long   ECHO_TAIL_MS   = 1_500L;  // the recognizer can deliver Buddy's last words this late
+    private static final double ECHO_RATIO     = 0.6;     // share of echo words that makes a result all echo
+    private static final int    MIN_RUN_PAIRS  = 2;       // consecutive spoken pairs (3 words) before anything counts as echo
+
+    // Store (guarded by the class lock): per utterance {addedAt, pair hash, pair hash, ...}, newest last
+    private static final ArrayDeque<long[]> spoken = new ArrayDeque<>();
+
+    // Metrics
+    private static long dropped = 0, trimmed = 0;
+
+    // --------------------------------------------------------------------------------
+    // Store (called by BuddyTTS when an utterance starts)
+    // --------------------------------------------------------------------------------
+    public static synchronized void onSpoken(String text) {
+        final String[] w = words(text.trim().split("\\s+"));
+        final long[] entry = new long[1 + w.length];
+        int n = 0;
+        entry[n++] = System.nanoTime();
+        for (int i = 0; i < w.length; i++) {
+            if (w[i].isEmpty()) { continue; }
+            final int next = neighbor(w, i, +1);
+            if (next >= 0) { entry[n++] = hash(w[i], w[next]); }
+        }
+        spoken.addLast((n == entry.length) ? entry : Arrays.copyOf(entry, n));
+        while (spoken.size() > RECENT) { spoken.removeFirst(); }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Filter (called by STTCallbacks for every result)
+    // --------------------------------------------------------------------------------
+    /** The result without Buddy's own words: unchanged, trimmed, or null if it was all echo. */
+    static @Nullable String strip(String heard) {
+        final boolean talking = BuddyTTS.isSpeaking(); // read before taking our lock
+        if (!talking && BuddyTTS.msSinceSpoke() > ECHO_TAIL_MS) { return heard; }
+        return match(heard, !talking);
+    }
+
+    static synchronized @Nullable String match(String heard, boolean lastOnly) {
+        if (spoken.isEmpty()) { return heard; }
+        final int recent = lastOnly ? 1 : RECENT;
+
+        final String[] tokens = heard.trim().split("\\s+");
+        final String[] w      = words(tokens);
+        final int[]    idx    = new int[w.length]; // token index of each non-empty word
+        int words = 0;
+        for (int i = 0; i < w.length; i++) { if (!w[i].isEmpty()) idx[words++] = i; }
+        if (words < MIN_RUN_PAIRS + 1) { return heard; } // too short to hold a run
+
+        // Mark the words covered by runs of MIN_RUN_PAIRS+ consecutive spoken pairs
+        final boolean[] echo = new boolean[w.length];
+        int hits = 0, run = 0;
+        for (int k = 0; k < words; k++) {
+            final boolean pair = (k + 1 < words) && said(hash(w[idx[k]], w[idx[k + 1]]), recent);
+            if (pair) { run++; continue; }
+            if (run >= MIN_RUN_PAIRS) { for (int j = k - run; j <= k; j++) { echo[idx[j]] = true; hits++; } }
+            run = 0;
+        }
+        if (hits == 0) { return heard; }
+
+        if (hits >= ECHO_RATIO * words) {
+            dropped++;
+            Log.d(TAG, String.format(Locale.US, "%s Dropped self-echo: %s | %s", TAG, heard, summary()));
+            return null;
+        }
+
+        // Leading echo run: Buddy's tail glued to the start of what the user said
+        if (!echo[idx[0]]) { return heard; }
+        int lead = 0;
+        while (lead < w.length && (w[lead].isEmpty() || echo[lead])) { lead++; }
+
+        final String rest = String.join(" ", Arrays.copyOfRange(tokens, lead, tokens.length));
+        trimmed++;
+        Log.d(TAG, String.format(Locale.US, "%s Trimmed self-echo: \"%s\" -> \"%s\"", TAG, heard, rest));
+        return rest;
+    }
+
+    static synchronized String summary() {
+        return String.format(Locale.US, "echoes dropped=%d trimmed=%d", dropped, trimmed);
+    }
+
+    /** Forget everything spoken (tests). */
+    static synchronized void clear() { spoken.clear(); }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    /** Normalized words, one per token ("" for punctuation-only tokens, so indices match the original text). */
+    private static String[] words(String[] tokens) {
+        final String[] w = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) { w[i] = tokens[i].toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}']+", ""); }
+        return w;
+    }
+
+    /** Was this pair spoken in one of the `recent` newest utterances (and within MEMORY_MS)? */
+    private static boolean said(long h, int recent) {
+        final long now = System.nanoTime();
+        final Iterator<long[]> it = spoken.descendingIterator();
+        for (int n = 0; n < recent && it.hasNext(); n++) {
+            final long[] u = it.next();
+            if ((now - u[0]) / 1_000_000L > MEMORY_MS) { break; }
+            for (int i = 1; i < u.length; i++) { if (u[i] == h) return true; }
+        }
+        return false;
+    }
+
+    /** Index of the nearest non-empty word before (dir -1) or after (dir +1) i, or -1. */
+    private static int neighbor(String[] w, int i, int dir) {
+        for (int j = i + dir; j >= 0 && j < w.length; j += dir) { if (!w[j].isEmpty()) return j; }
+        return -1;
+    }
+
+    /** 64-bit FNV-1a of a word pair. */
+    private static long hash(String a, String b) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < a.length(); i++) { h = (h ^ a.charAt(i)) * 0x100000001b3L; }
+        h = (h ^ ' ') * 0x100000001b3L;
+        for (int i = 0; i < b.length(); i++) { h = (h ^ b.charAt(i)) * 0x100000001b3L; }
+        return h;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.example.buddychat.stt;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.example.buddychat.stt.SetupSTT.Engine;
+
+// ================================================================================
+// Which STT engine to listen with
+// ================================================================================
+/** EngineSelector <br>
+ * Keeps per-engine health (availability, recent errors) and picks the engine for the next listen. Decisions are only made in choose(), i.e. when BuddySTT (re)starts listening. <ul>
+ *     <li> Hard failover (no hold time): the active engine has no task, or MAX_CONSECUTIVE_ERRORS errors in a row. </li>
+ *     <li> Soft switch (after MIN_HOLD_MS): the active engine's recent error rate is high, or it is the network-bound
+ *          primary on a slow link (Heartbeat). </li>
+ *     <li> Recovery: on the standby, the primary is probed again every PROBE_AFTER_MS while the link is fine. </li>
+ * </ul>
+ * Result latency is not a signal: the SDK reports neither speech end nor interim results, so the only thing we can
+ * time is listen start -> result, which mostly measures when and how long the user spoke. */
+final class EngineSelector {
+    private static final String TAG = "[DPU_EngineSelector]";
+
+    // Configuration
+    private static final int    MAX_CONSECUTIVE_ERRORS = 3;
+    private static final int    OUTCOME_WINDOW         = 10;      // recent listens used for the error rate
+    private static final double MAX_ERROR_RATE         = 0.5;
+    private static final int    MIN_SAMPLES            = 4;       // before an error rate is trusted
+    private static final long   MIN_HOLD_MS            = 30_000L; // between soft switches (no flapping)
+    private static final long   PROBE_AFTER_MS         = 120_000L;
+
+    /** Rolling health of one engine. */
+    private static final class Health {
+        final boolean[] outcomes = new boolean[OUTCOME_WINDOW]; // true = error
+        int     outcomeCount = 0, outcomeNext = 0;
+        int     consecutiveErrors = 0;
+        long    results = 0, errors = 0;
+        boolean available = false;
+
+        void outcome(boolean error) {
+            outcomes[outcomeNext] = error;
+            outcomeNext = (outcomeNext + 1) % OUTCOME_WINDOW;
+            if (outcomeCount < OUTCOME_WINDOW) { outcomeCount++; }
+        }
+
+        double errorRate() {
+            int n = 0;
+            for (int i = 0; i < outcomeCount; i++) { if (outcomes[i]) n++; }
+            return outcomeCount == 0 ? 0 : (double) n / outcomeCount;
+        }
+
+        boolean failing () { return !available || consecutiveErrors >= MAX_CONSECUTIVE_ERRORS; }
+        boolean degraded() { return failing() || (outcomeCount >= MIN_SAMPLES && errorRate() >= MAX_ERROR_RATE); }
+    }
+
+    private final Engine primary;
+    @Nullable private final Engine standby;
+    private final EnumMap<Engine, Health> health = new EnumMap<>(Engine.class);
+    private Engine active;
+    private long   switchedAt = Long.MIN_VALUE / 2; // nanoTime of the last switch
+
+    EngineSelector(Engine primary, @Nullable Engine standby) {
+        this.primary = primary;
+        this.standby = standby;
+        this.active  = primary;
+        health.put(primary, new Health());
+        if (standby != null) { health.put(standby, new Health()); }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Reports (from BuddySTT)
+    // --------------------------------------------------------------------------------
+    synchronized void setAvailable(Engine e, boolean ok) {
+        final Health h = health.get(e);
+        if (h != null) { h.available = ok; }
+    }
+
+    synchronized void onResult(Engine e) {
+        final Health h = health.get(e);
+        if (h == null) { return; }
+        h.outcome(false);
+        h.consecutiveErrors = 0;
+        h.results++;
+    }
+
+    synchronized void onError(Engine e) {
+        final Health h = health.get(e);
+        if (h == null) { return; }
+        h.outcome(true);
+        h.consecutiveErrors++;
+        h.errors++;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Decision
+    // --------------------------------------------------------------------------------
+    synchronized Engine active() { return active; }
+
+    /** Engine for the next listen (may switch). `linkSlow` = the backend link is currently slow (Heartbeat). */
+    synchronized Engine choose(boolean linkSlow) {
+        final Engine other = (active == primary) ? standby : primary;
+        if (other == null || !health.get(other).available) { return active; }
+
+        final Health cur = health.get(active), alt = health.get(other);
+        final long   now = System.nanoTime();
+        final boolean held = (now - switchedAt) / 1_000_000L >= MIN_HOLD_MS;
+
+        String reason = null;
+        if      (cur.failing() && !alt.failing())                        { reason = "failing"; }
+        else if (held && cur.degraded() && !alt.degraded())              { reason = String.format(Locale.US, "error rate %.0f%%", 100 * cur.errorRate()); }
+        else if (held && active == primary && linkSlow)                  { reason = "slow link"; }
+        else if (active != primary && !linkSlow && (now - switchedAt) / 1_000_000L >= PROBE_AFTER_MS) {
+            alt.consecutiveErrors = 0; // give the primary a clean try
+            reason = "probing primary";
+        }
+
+        if (reason != null) {
+            Log.w(TAG, String.format("%s Switching STT %s -> %s (%s) | %s", TAG, active, other, reason, summary()));
+            active     = other;
+            switchedAt = now;
+        }
+        return active;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Reporting
+    // --------------------------------------------------------------------------------
+    synchronized String summary() {
+        final StringBuilder sb = new StringBuilder("active=").append(active);
+        for (Map.Entry<Engine, Health> e : health.entrySet()) {
+            final Health h = e.getValue();
+            sb.append(String.format(Locale.US, " | %s%s results=%d errors=%d (recent %.0f%%)",
+                    e.getKey(), h.available ? "" : " (unavailable)", h.results, h.errors, 100 * h.errorRate()));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.example.buddychat.stt;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.bfr.buddy.speech.shared.STTResult;
+
+import com.example.buddychat.utils.behavior.IntentDetector;
+import com.example.buddychat.utils.behavior.UserIntent;
+
+// ================================================================================
+// Pick the best STT hypothesis (or none)
+// ================================================================================
+/** HypothesisRanker <br>
+ * The recognizer returns an N-best list; we used to take entry 0 blindly. Each hypothesis is now scored: <ul>
+ *     <li> its confidence (0..1; engines that report 0..100 are scaled), </li>
+ *     <li> + INTENT_BONUS if it reads as something we understand (an end-chat command, or a short
+ *          yes/no/thanks/sorry answer per UserIntent / IntentDetector), </li>
+ *     <li> + RULE_BONUS if a grammar rule matched (Cerence FCF), </li>
+ *     <li> - RANK_STEP per position, so the recognizer's own order breaks ties. </li>
+ * </ul>
+ * The winner is dropped if it is only filler ("uh", "hmm") or its score is under the confidence floor, so
+ * room noise and background TV never reach the WebSocket. If the engine reports no confidence at all (every
+ * entry 0) the floor can't be judged and only the filler check applies. */
+public final class HypothesisRanker {
+    private static final String TAG = "[DPU_HypothesisRanker]";
+    private HypothesisRanker() {} // no instances
+
+    // Configuration
+    private static final float INTENT_BONUS = 0.15f;
+    private static final float RULE_BONUS   = 0.10f;
+    private static final float RANK_STEP    = 0.02f;
+    private static volatile float floor     = 0.35f;
+
+    private static final Pattern FILLER = Pattern.compile(
+            "^[\\p{P}\\s]*(?:(?:u+h+|u+m+|h*m+|e+r+m*|a+h+|o+h+|hu+h+)[\\p{P}\\s]*)+$", Pattern.CASE_INSENSITIVE);
+
+    // Metrics
+    private static final AtomicLong picked  = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicLong rerank  = new AtomicLong(); // times the winner wasn't the recognizer's first choice
+
+    /** The chosen hypothesis. */
+    static final class Choice {
+        final String text; final float confidence; final String rule;
+        Choice(String text, float confidence, String rule) { this.text = text; this.confidence = confidence; this.rule = rule; }
+    }
+
+    /** Results whose score is below this are dropped (0 disables the floor). */
+    public static void setConfidenceFloor(float f) { floor = Math.max(0f, f); }
+
+    // --------------------------------------------------------------------------------
+    // Ranking
+    // --------------------------------------------------------------------------------
+    /** Best hypothesis, or null if there is none worth sending. */
+    @Nullable static Choice pick(@Nullable List<STTResult> results) {
+        if (results == null || results.isEmpty()) { return null; }
+
+        boolean anyConfidence = false;
+        for (STTResult r : results) { if (r.getConfidence() > 0f) { anyConfidence = true; break; } }
+
+        int   best      = -1;
+        float bestScore = -Float.MAX_VALUE;
+        for (int i = 0; i < results.size(); i++) {
+            final STTResult r    = results.get(i);
+            final String    text = r.getUtterance();
+            if (text == null || text.trim().isEmpty()) { continue; }
+
+            final float score = confidence(r) + bonus(text, r.getRule()) - RANK_STEP * i;
+            if (score > bestScore) { best = i; bestScore = score; }
+        }
+        if (best < 0) { dropped.incrementAndGet(); return null; }
+
+        final STTResult r = results.get(best);
+        final String text = r.getUtterance().trim();
+        if (FILLER.matcher(text).matches() || (anyConfidence && bestScore < floor)) {
+            Log.d(TAG, String.format(Locale.US, "%s Dropped \"%s\" (score %.2f, floor %.2f) | picked=%d dropped=%d",
+                    TAG, text, bestScore, floor, picked.get(), dropped.incrementAndGet()));
+            return null;
+        }
+
+        if (best > 0) {
+            rerank.incrementAndGet();
+            Log.i(TAG, String.format(Locale.US, "%s Reranked #%d over #0: \"%s\" > \"%s\"", TAG, best, text, results.get(0).getUtterance()));
+        }
+        picked.incrementAndGet();
+        return new Choice(text, confidence(r), r.getRule());
+    }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    private static float confidence(STTResult r) {
+        final float c = r.getConfidence();
+        return (c > 1f) ? c / 100f : Math.max(0f, c);
+    }
+
+    private static float bonus(String text, @Nullable String rule) {
+        float b = 0f;
+        if (UserIntent.classify(text) != UserIntent.Intent.UNKNOWN
+                || IntentDetector.classify(text) != IntentDetector.Intent.UNKNOWN) { b += INTENT_BONUS; }
+        if (rule != null && !rule.isEmpty() && !"free".equalsIgnoreCase(rule)) { b += RULE_BONUS; }
+        return b;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Reporting
+    // --------------------------------------------------------------------------------
+    static String summary() {
+        return String.format(Locale.US, "hypotheses picked=%d reranked=%d dropped=%d (floor %.2f)", picked.get(), rerank.get(), dropped.get(), floor);
+    }
+
+}
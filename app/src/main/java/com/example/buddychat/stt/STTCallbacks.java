@@ -3,9 +3,13 @@ package com.example.buddychat.stt;
 import android.annotation.SuppressLint;
 import android.util.Log;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 // App code
 import com.bfr.buddy.ui.shared.FacialExpression;
 import com.example.buddychat.chat.StatusController;
+import com.example.buddychat.chat.TurnTracer;
 import com.example.buddychat.utils.behavior.Emotions;
 import com.example.buddychat.utils.behavior.UserIntent;
 import com.example.buddychat.utils.audio_triangulation.AudioTracking;
@@ -18,18 +22,54 @@ import com.example.buddychat.utils.audio_triangulation.AngleBuckets.Bucket;
 public final class STTCallbacks  {
     private static final String TAG  = "[DPU_STTCallbacks]";
 
+    // Held text shorter than this isn't worth starting the LLM on
+    private static final int MIN_PARTIAL_WORDS = 3;
+
+    // Fragments of one sentence are merged before sending (see UtteranceCoalescer)
+    private static final ScheduledExecutorService COALESCE_TIMER = Executors.newSingleThreadScheduledExecutor();
+    private final UtteranceCoalescer coalescer = new UtteranceCoalescer(COALESCE_TIMER, this::onUtterance);
+
     // Initialization
-    private final UtteranceCallback utteranceCallback;
-    public STTCallbacks(UtteranceCallback utteranceCallback) { this.utteranceCallback = utteranceCallback; }
+    private final UtteranceCallback utteranceCallback;  // final transcriptions
+    private final UtteranceCallback partialCallback;    // held text, sent speculatively (may be ignored)
+    public STTCallbacks(UtteranceCallback utteranceCallback, UtteranceCallback partialCallback) {
+        this.utteranceCallback = utteranceCallback;
+        this.partialCallback   = partialCallback;
+    }
 
     // --------------------------------------------------------------------------------
     // Methods
     // --------------------------------------------------------------------------------
     public void onError(String e) { Log.e(TAG, String.format("%s error: %s", TAG, e)); }
 
-    public void onText(String utterance, float confidence, String rule) {
-        Log.i(TAG, String.format("%s Utt: %s (conf: %.3f, rule: %s)", TAG, utterance, confidence, rule));
-        BuddySTT.pause(); // ToDo: Testing out pausing/resuming STT to avoid double messages
+    /** One recognizer result. It may only be part of a sentence, so it is held briefly (listening continues) and
+     * merged with a continuation; meanwhile the text so far goes out as a speculative partial, so the wait
+     * overlaps with the LLM starting. */
+    public void onText(String fragment, float confidence, String rule) {
+        Log.i(TAG, String.format("%s Fragment: %s (conf: %.3f, rule: %s)", TAG, fragment, confidence, rule));
+        if (!StatusController.isActive()) {
+            BuddySTT.pause();
+            Log.w(TAG, String.format("%s Ignored speech (Chat is not active)", TAG));
+            return;
+        }
+
+        // The microphone hears Buddy too: drop (or cut off) its own words first
+        final String heard = EchoFilter.strip(fragment);
+        if (heard == null) { return; }
+
+        // STT may be listening while Buddy talks (barge-in): stop talking for the user's voice
+        switch (BargeIn.gate(heard)) {
+            case NOISE    : return;
+            case INTERRUPT: BargeIn.interrupt(); break;
+            default       : break;
+        }
+        onPartial(coalescer.add(heard, confidence, rule));
+    }
+
+    /** A whole utterance (fragments merged), on the coalescer's timer thread. */
+    private void onUtterance(String utterance, float confidence, String rule, int fragments) {
+        Log.i(TAG, String.format("%s Utt: %s (conf: %.3f, rule: %s, fragments: %d)", TAG, utterance, confidence, rule, fragments));
+        if (!BargeIn.isEnabled()) { BuddySTT.pause(); } // otherwise keep listening through the reply so the user can cut in
 
         // 1. Operations that need to happen on detection of a user utterance
         final boolean chatEnded = onUserUtterance(utterance);
@@ -47,10 +87,21 @@ public final class STTCallbacks  {
             return;
         }
 
-        // 4. Send the message over the WebSocket
+        // 4. Send the message over the WebSocket (as a new traced turn)
+        TurnTracer.begin();
         utteranceCallback.sendString(utterance);
     }
 
+    /** The text the coalescer is holding (the SDK has no interim results; this is a final result that may still be
+     * continued): lets the backend start on it during the hold. The merged utterance then commits or supersedes it.
+     * No pause/face change here; the turn isn't over. */
+    private void onPartial(String hypothesis) {
+        if (hypothesis == null || !StatusController.isActive()) { return; }
+        if (hypothesis.trim().split("\\s+").length < MIN_PARTIAL_WORDS) { return; }
+        if (UserIntent.isEndChat(hypothesis)) { return; } // no point starting a reply to "goodbye"
+        partialCallback.sendString(hypothesis);
+    }
+
 
     // --------------------------------------------------------------------------------
     // Check for flags indicating we need to do stuff (emotions, ending the chat, etc.)
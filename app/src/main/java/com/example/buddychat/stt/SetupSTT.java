@@ -12,15 +12,15 @@ import androidx.core.content.ContextCompat;
 import com.bfr.buddysdk.services.speech.STTTask;
 import com.bfr.buddysdk.BuddySDK;
 
-import java.util.Locale;
+import com.example.buddychat.utils.SpeechLanguage;
 
 // ================================================================================
 // Setup for Built-in Speech-to-Text
 // ================================================================================
 // Only called once, from 'BuddySTT', during initialization.
 // ToDo: Should maybe show Toast if the task initialization fails...
-// ToDo: Add retries where we use Cerence if Google isn't available (?)
-// ToDo: Need to find out through logs what that looks like when it happens...
+// Both the PRIMARY and STANDBY tasks are created up front, for every SpeechLanguage; EngineSelector decides
+// which engine listens and BuddySTT.setLanguage() which language's tasks it uses.
 public final class SetupSTT {
     private static final String TAG = "[DPU_SetupSTT]";
     private SetupSTT() {} // no instances
@@ -53,40 +53,35 @@ public final class SetupSTT {
     public enum Engine { GOOGLE, CERENCE_FREE, CERENCE_FCF }
 
     // Parameters
-    private static final Locale LOCALE = Locale.ENGLISH;
-    private static final Engine ENGINE = Engine.GOOGLE;
-
-    private static String fcf() { return LOCALE == Locale.ENGLISH ? "audio_en.fcf" : "audio_fr.fcf"; }
+    static final Engine PRIMARY = Engine.GOOGLE;        // best accuracy, but every result goes over the network
+    static final Engine STANDBY = Engine.CERENCE_FREE;  // on-device; hot standby when Google fails or the link is slow
 
     // --------------------------------------------------------------------------------
     // Initialization -- Called once in MainActivity.onCreate
     // --------------------------------------------------------------------------------
-    // ToDo: Add retry logic to use Cerence if Google fails
-    public static STTTask initializeSTTTask(Context context) {
-        // Check microphone permission
-        if (SetupSTT.notMicPermission(context)) { SetupSTT.requestMicPermission(context); }
-
+    /** Create and initialize the task for one engine and language (null if it isn't available, e.g. off-robot). */
+    public static STTTask initializeSTTTask(Context context, Engine engine, SpeechLanguage language) {
         // Initialize empty task object
         STTTask task = null;
 
         // Guard for BuddyRobot hardware
         try {
-            switch (ENGINE) {
-                case GOOGLE       : task = BuddySDK.Speech.createGoogleSTTTask(LOCALE); break;
-                case CERENCE_FREE : task = BuddySDK.Speech.createCerenceFreeSpeechTask(LOCALE); break;
-                case CERENCE_FCF  : task = BuddySDK.Speech.createCerenceTaskFromAssets(LOCALE, fcf(), context.getAssets()); break;
+            switch (engine) {
+                case GOOGLE       : task = BuddySDK.Speech.createGoogleSTTTask(language.locale); break;
+                case CERENCE_FREE : task = BuddySDK.Speech.createCerenceFreeSpeechTask(language.locale); break;
+                case CERENCE_FCF  : task = BuddySDK.Speech.createCerenceTaskFromAssets(language.locale, language.fcf, context.getAssets()); break;
             }
 
-            if (task == null) { return task; }
+            if (task == null) { Log.w(TAG, String.format("%s %s/%s STT task could not be created", TAG, engine, language)); return null; }
 
             // Success, finish initializing
             task.initialize();
-            Log.i(TAG, String.format("%s Buddy STT initialised with: %s", TAG, ENGINE));
+            Log.i(TAG, String.format("%s Buddy STT initialised with: %s (%s)", TAG, engine, language));
             return task;
         }
 
         // Not on a Buddy robot / some other failure
-        catch (Throwable t) { Log.w(TAG, String.format("%s Buddy STT unavailable: %s", TAG, t)); return task; }
+        catch (Throwable t) { Log.w(TAG, String.format("%s Buddy STT %s/%s unavailable: %s", TAG, engine, language, t)); return null; }
     }
 
 }
@@ -0,0 +1,178 @@
+package com.example.buddychat.stt;
+
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.example.buddychat.utils.behavior.IntentDetector;
+import com.example.buddychat.utils.behavior.UserIntent;
+import com.example.buddychat.utils.metrics.LatencyStats;
+
+// ================================================================================
+// Merge STT fragments of one spoken sentence
+// ================================================================================
+/** UtteranceCoalescer <br>
+ * In continuous mode a sentence with a pause in it often arrives as two results. Each result is held for
+ * windowMs; a continuation that arrives in time is merged into it, and the timer restarts. <ul>
+ *     <li> A merge with gap g widens the window to cover g (+ MARGIN_MS). </li>
+ *     <li> A "late" fragment (arrived after we sent, before listening was restarted for the next turn) does the same and is counted. </li>
+ *     <li> A single-fragment send shrinks the window by a quarter of its excess (at least DECAY_MS), down to the
+ *          recent p90 gap (+ MARGIN_MS) or MIN_WINDOW_MS. </li>
+ * </ul>
+ * The hold for one utterance depends on how it ends (holdFor()): <ul>
+ *     <li> A quick complete answer ("yes", "no thanks", "goodbye") is sent after windowMs * fastScale. A late
+ *          fragment after such a fast send is a premature cut-off: fastScale backs off by FAST_BACKOFF (the
+ *          normal window is left alone); every fast send that wasn't cut off creeps it back down by FAST_DECAY. </li>
+ *     <li> A result ending on a word that can't end a sentence ("and", "because", "um") waits twice as long. </li>
+ * </ul>
+ * GAPS and HOLD are the metrics: how far apart merged fragments were, and how long we held the last
+ * fragment before sending (the delay this adds to every turn). */
+final class UtteranceCoalescer {
+    private static final String TAG = "[DPU_Coalescer]";
+
+    // Configuration
+    private static final long   INITIAL_WINDOW_MS = 500L;
+    private static final long   MIN_WINDOW_MS     = 250L;
+    private static final long   MAX_WINDOW_MS     = 1_500L;
+    private static final long   MARGIN_MS         = 150L;
+    private static final long   DECAY_MS          = 20L;
+    private static final long   MIN_FAST_MS       = 120L;
+    private static final double MIN_FAST_SCALE    = 0.3;
+    private static final double FAST_BACKOFF      = 0.25;
+    private static final double FAST_DECAY        = 0.05;
+    private static final int    MAX_QUICK_WORDS   = 3;
+
+    // Last words that mean the speaker isn't finished
+    private static final Set<String> CONTINUES = new HashSet<>(Arrays.asList(
+            "and", "but", "or", "so", "because", "cause", "if", "with", "to", "of", "the", "a", "an", "my", "um", "uh", "erm"));
+
+    // Metrics (ms)
+    static final LatencyStats GAPS = new LatencyStats("stt_fragment_gap", 50); // between fragments that were merged
+    static final LatencyStats HOLD = new LatencyStats("stt_coalesce_hold", 50); // last fragment -> sent
+
+    /** Receives each merged utterance (on the timer thread). */
+    interface Sink { void onUtterance(String text, float confidence, String rule, int fragments); }
+
+    private final ScheduledExecutorService timer;
+    private final Sink sink;
+
+    // State (guarded by this)
+    private long   windowMs = INITIAL_WINDOW_MS;
+    private String pending  = null;
+    private float  confidence;
+    private String rule;
+    private int    fragments;
+    private long   lastAt    = 0L;  // nanoTime of the newest pending fragment
+    private long   flushedAt = 0L;  // nanoTime of the last send
+    private ScheduledFuture<?> flushTask = null;
+    private long   addSeq    = 0L;  // a flush only sends if no fragment arrived after it was scheduled
+    private double fastScale = 0.5; // quick answers are held windowMs * fastScale
+    private boolean pendingFast = false, flushedFast = false;
+    private long   utterances = 0, merges = 0, late = 0, fast = 0, fastCutoffs = 0;
+
+    UtteranceCoalescer(ScheduledExecutorService timer, Sink sink) { this.timer = timer; this.sink = sink; }
+
+    // --------------------------------------------------------------------------------
+    // Public API
+    // --------------------------------------------------------------------------------
+    /** Add one recognizer result; returns the text collected so far for this utterance. */
+    synchronized String add(String text, float conf, String r) {
+        final long now = System.nanoTime();
+        final String t = text.trim();
+
+        if (pending == null) {
+            // The continuation of something we already sent: the window was too short for this speaker
+            final long sinceFlush = (now - flushedAt) / 1_000_000L;
+            if (flushedAt != 0 && BuddySTT.lastStartRequest() < flushedAt && sinceFlush + windowMs < MAX_WINDOW_MS) {
+                late++;
+                if (flushedFast) {
+                    fastCutoffs++;
+                    fastScale = Math.min(1.0, fastScale + FAST_BACKOFF);
+                    Log.w(TAG, String.format(Locale.US, "%s Fast send cut the speaker off (%d ms later); fast scale now %.2f", TAG, sinceFlush, fastScale));
+                }
+                else {
+                    widen(sinceFlush + windowMs);
+                    Log.w(TAG, String.format(Locale.US, "%s Late fragment %d ms after send; window now %d ms", TAG, sinceFlush, windowMs));
+                }
+            }
+            pending = t; confidence = conf; rule = r; fragments = 1;
+        }
+        else {
+            final long gap = (now - lastAt) / 1_000_000L;
+            GAPS.record(gap);
+            widen(gap);
+            pending    = merge(pending, t);
+            confidence = Math.min(confidence, conf);
+            rule       = r;
+            fragments++;
+        }
+
+        lastAt = now;
+        final long seq  = ++addSeq;
+        final long hold = holdFor(pending);
+        if (flushTask != null) { flushTask.cancel(false); }
+        flushTask = timer.schedule(() -> flush(seq), hold, TimeUnit.MILLISECONDS);
+        return pending;
+    }
+
+    synchronized String summary() {
+        return String.format(Locale.US, "utterances=%d merged=%d late=%d window=%d ms fast=%d (cut off %d, scale %.2f) | %s | %s",
+                utterances, merges, late, windowMs, fast, fastCutoffs, fastScale, GAPS.summary(), HOLD.summary());
+    }
+
+    // --------------------------------------------------------------------------------
+    // Internal Logic
+    // --------------------------------------------------------------------------------
+    private void flush(long seq) {
+        final String text; final float conf; final String r; final int n;
+        synchronized (this) {
+            if (pending == null || seq != addSeq) { return; }
+            text = pending; conf = confidence; r = rule; n = fragments;
+            pending = null; flushTask = null;
+            flushedAt   = System.nanoTime();
+            flushedFast = pendingFast;
+            if (pendingFast) { fast++; fastScale = Math.max(MIN_FAST_SCALE, fastScale - FAST_DECAY); }
+            HOLD.record((flushedAt - lastAt) / 1_000_000L);
+            utterances++;
+            if (n > 1) {
+                merges++;
+                Log.i(TAG, String.format("%s Merged %d fragments | %s", TAG, n, summary()));
+            }
+            else {
+                final long floor = Math.max(MIN_WINDOW_MS, Math.min(MAX_WINDOW_MS, GAPS.size() > 0 ? GAPS.percentile(90) + MARGIN_MS : 0));
+                windowMs = Math.max(floor, windowMs - Math.max(DECAY_MS, (windowMs - floor) / 4));
+            }
+        }
+        sink.onUtterance(text, conf, r, n);
+    }
+
+    /** How long to wait for a continuation of `text` (sets pendingFast). */
+    private long holdFor(String text) {
+        final String[] w = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}' ]+", " ").trim().split("\\s+");
+        pendingFast = false;
+        if (CONTINUES.contains(w[w.length - 1])) { return Math.min(MAX_WINDOW_MS, windowMs * 2); }
+        if (w.length <= MAX_QUICK_WORDS && (IntentDetector.classify(text) != IntentDetector.Intent.UNKNOWN
+                                            || UserIntent.classify(text) != UserIntent.Intent.UNKNOWN)) {
+            pendingFast = true;
+            return Math.max(MIN_FAST_MS, Math.round(windowMs * fastScale));
+        }
+        return windowMs;
+    }
+
+    private void widen(long gapMs) { windowMs = Math.max(windowMs, Math.min(MAX_WINDOW_MS, gapMs + MARGIN_MS)); }
+
+    /** Join two results; a recognizer that re-sends a growing hypothesis replaces instead of repeating it. */
+    private static String merge(String a, String b) {
+        final String al = a.toLowerCase(Locale.ROOT), bl = b.toLowerCase(Locale.ROOT);
+        if (bl.startsWith(al)) { return b; }
+        if (al.endsWith(bl))   { return a; }
+        return a + " " + b;
+    }
+
+}
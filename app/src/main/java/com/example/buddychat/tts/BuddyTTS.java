@@ -8,42 +8,95 @@ import com.bfr.buddy.ui.shared.FacialExpression;
 import com.bfr.buddy.ui.shared.LabialExpression;
 import com.bfr.buddysdk.BuddySDK;
 
-import com.example.buddychat.utils.ThreadUtils;
+import com.example.buddychat.chat.TurnTracer;
+import com.example.buddychat.stt.EchoFilter;
+import com.example.buddychat.tts.SpeechScheduler.Done;
+import com.example.buddychat.tts.SpeechScheduler.Policy;
+import com.example.buddychat.tts.SpeechScheduler.Priority;
 
 // ================================================================================
 // Wrapper class around BuddySDK.Speech for Text-to-Speech
 // ================================================================================
 // 'SetupTTS.java makes' sure everything is already loaded on app start
+/** BuddyTTS <br>
+ * Utterances are not handed to the engine directly; SpeechScheduler decides what is said when (priority,
+ * preemption, mailbox policy) and fires each completion callback exactly once. */
 public final class BuddyTTS {
     private static final String TAG = "[DPU_BuddyTTS]";
     private BuddyTTS() {} // static-only class
 
+    // The BuddySDK voice; tests can swap in a fake with setEngine()
+    public static final TTSEngine SDK_ENGINE = new TTSEngine() {
+        @Override public boolean isReady() { return SetupTTS.isReady(); }
+        @Override public void    stop   () { try { BuddySDK.Speech.stopSpeaking(); } catch (Throwable ignored) {} }
+        @Override public void    speak  (String text, LabialExpression expression, Runnable onDone) {
+            BuddySDK.Speech.startSpeaking(text, expression, new ITTSCallback.Stub() {
+                @Override public void onSuccess(String s) { speechCompleted(s); onDone.run(); }
+                @Override public void onPause  ()         { }
+                @Override public void onResume ()         { }
+                @Override public void onError  (String s) { speechCompleted(s); onDone.run(); }
+            });
+        }
+    };
+    private static volatile TTSEngine engine = SDK_ENGINE;
+
+    /** Swap the speech engine (null restores the BuddySDK one). */
+    public static void setEngine(@Nullable TTSEngine e) { engine = (e != null) ? e : SDK_ENGINE; }
+
+    private static final SpeechScheduler SCHEDULER = new SpeechScheduler(() -> engine);
+
+    // What is being said (read by barge-in / echo gating on the STT thread)
+    private static volatile String lastText  = "";  // the utterance being (or last) spoken
+    private static volatile long   lastEndAt = 0L;  // nanoTime the last utterance finished
+
     // Control
-    public static boolean start() { return SetupTTS.isReady(); }
-    public static void    stop () { try { BuddySDK.Speech.stopSpeaking(); } catch (Throwable ignored) {} }
+    public static boolean start  () { return engine.isReady(); }
+    public static boolean isReady() { return engine.isReady(); }
+    /** Stop talking and drop everything queued (their callbacks fire with CANCELLED). */
+    public static void    stop   () { SCHEDULER.cancelAll(); }
+
+    public static boolean isSpeaking() { return SCHEDULER.isSpeaking(); }
+    public static String  lastText  () { return lastText; }
+
+    /** ms since Buddy last stopped talking (0 while talking, Long.MAX_VALUE if it never has). */
+    public static long msSinceSpoke() {
+        if (isSpeaking()) { return 0L; }
+        final long end = lastEndAt;
+        return (end == 0L) ? Long.MAX_VALUE : (System.nanoTime() - end) / 1_000_000L;
+    }
+
+
+    /** Log and return how utterances ended (spoken, cancelled, preempted, replaced, dropped). */
+    public static String dumpStats() {
+        final String s = SCHEDULER.summary();
+        Log.i(TAG, String.format("%s %s", TAG, s));
+        return s;
+    }
 
     // --------------------------------------------------------------------------------
     // Text-to-Speech (have the option to provide a callback on TTS completion)
     // --------------------------------------------------------------------------------
-    // ToDo: I feel like the overloaded methods below should be private...
-    public static void speak(String text, @Nullable LabialExpression iExpression, @Nullable Runnable onSuccessCb) {
-        if (SetupTTS.notReady()) { return; } // Ready checks
+    /** Schedule an utterance; `done` runs exactly once on the UI thread with how it ended (spoken, cancelled, ...). */
+    public static SpeechScheduler.Token speak(String text, @Nullable LabialExpression iExpression,
+                                              Priority priority, Policy policy, @Nullable Done done) {
         if (iExpression == null) { iExpression = LabialExpression.SPEAK_NEUTRAL; }
+        return SCHEDULER.submit(text, iExpression, priority, policy, done);
+    }
 
-        BuddySDK.Speech.startSpeaking(text, iExpression, new ITTSCallback.Stub() {
-            @Override public void onSuccess(String s) { speechCompleted(s); runCb(onSuccessCb); }
-            @Override public void onPause  ()         { }
-            @Override public void onResume ()         { }
-            @Override public void onError  (String s) { speechCompleted(s); runCb(onSuccessCb); }
-        });
+    // Overloads for 'speak' (a queued REPLY; the Runnable runs however the utterance ended)
+    public static void speak(String text, @Nullable LabialExpression iExpression, @Nullable Runnable onDoneCb) {
+        speak(text, iExpression, Priority.REPLY, Policy.QUEUE, (onDoneCb == null) ? null : outcome -> onDoneCb.run());
     }
+    public static void speak(String text) { speak(text, LabialExpression.SPEAK_NEUTRAL, (Runnable) null); }
+    public static void speak(String text, @Nullable Runnable onDoneCb) { speak(text, LabialExpression.SPEAK_NEUTRAL, onDoneCb); }
 
-    // Overloads for 'speak' (don't require all arguments)
-    public static void speak(String text) { speak(text, LabialExpression.SPEAK_NEUTRAL, null); }
-    public static void speak(String text, @Nullable Runnable onSuccessCb) { speak(text, LabialExpression.SPEAK_NEUTRAL, onSuccessCb); }
+    // --------------------------------------------------------------------------------
+    // Called by SpeechScheduler
+    // --------------------------------------------------------------------------------
+    static void onUtteranceStart(String text) { lastText = text; EchoFilter.onSpoken(text); TurnTracer.mark(TurnTracer.Stage.TTS_START); }
+    static void onUtteranceEnd  ()            { lastEndAt = System.nanoTime(); }
 
-    // Shared Helpers (log on speech completion & execute a callback on success)
+    // Shared Helper (log on speech completion)
     private static void speechCompleted(String s) { Log.d(TAG, String.format("%s TTS Speech completed: %s", TAG, s)); }
-    private static void runCb(@Nullable Runnable cb) { ThreadUtils.runOnUiThread(cb); }
 
 }
@@ -0,0 +1,165 @@
+package com.example.buddychat.tts;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+
+import com.example.buddychat.chat.TurnTracer;
+import com.example.buddychat.stt.BuddySTT;
+import com.example.buddychat.utils.behavior.IntentDetector;
+
+// ================================================================================
+// Sentence assembler for streamed LLM responses
+// ================================================================================
+/** SentenceAssembler <br>
+ * The backend can stream a response as many "llm_delta" chunks followed by a single "llm_done".
+ * Chunks are buffered here until a full sentence is available, which is handed to BuddyTTS right
+ * away. Later sentences wait in a queue and are chained through the TTS completion callback, so
+ * Buddy starts talking after the first sentence instead of after the whole response. <br>
+ * STT is restarted once the stream is done AND the last queued sentence has been spoken. */
+public final class SentenceAssembler {
+    private static final String TAG = "[DPU_SentenceAssembler]";
+    private SentenceAssembler() {} // static-only class
+
+    // Don't split off tiny fragments like "Oh." -- they sound choppy when spoken on their own
+    private static final int MIN_SENTENCE_CHARS = 12;
+
+    // Common abbreviations that end in a period but don't end a sentence
+    private static final String[] ABBREVIATIONS = { "mr.", "mrs.", "ms.", "dr.", "st.", "jr.", "sr.", "vs.", "etc.", "e.g.", "i.e." };
+
+    // Stream state (guarded by the class lock; deltas arrive on the OkHttp thread, TTS callbacks on the UI thread)
+    private static final StringBuilder       pending   = new StringBuilder();  // text not yet split into a sentence
+    private static final StringBuilder       fullText  = new StringBuilder();  // everything received for this stream
+    private static final ArrayDeque<String>  sentences = new ArrayDeque<>();   // complete sentences waiting to be spoken
+    private static @Nullable String streamId     = null;
+    private static boolean          speaking     = false;
+    private static boolean          streamDone   = false;
+    private static boolean          intentChecked = false;
+    private static @Nullable String cancelledId  = null;   // reply the user talked over; the rest of it is ignored
+
+    // --------------------------------------------------------------------------------
+    // Public API (called by MessageHandler)
+    // --------------------------------------------------------------------------------
+    /** Handle an "llm_delta" chunk. A new stream id arriving mid-stream drops anything still queued from the old one. */
+    public static synchronized void onDelta(@Nullable String id, String chunk) {
+        if (id != null && id.equals(cancelledId)) { return; }
+        TurnTracer.mark(TurnTracer.Stage.FIRST_REPLY);
+        if      (id != null && streamId != null && !id.equals(streamId)) { startStream(id);       } // superseded mid-stream
+        else if (streamDone                                            ) { startStream(id, true); } // previous one finished; let its tail play out
+        else if (streamId == null                                      ) { streamId = id;         }
+
+        pending .append(chunk);
+        fullText.append(chunk);
+        extractSentences(false);
+        speakNextIfIdle();
+    }
+
+    /** Handle "llm_done". Flushes the remaining text as a final sentence and restarts STT once everything is spoken. */
+    public static synchronized void onDone(@Nullable String id) {
+        if (id != null && id.equals(cancelledId)) { return; }
+        if (id != null && streamId != null && !id.equals(streamId)) {
+            Log.w(TAG, String.format("%s Ignoring llm_done for stale stream: %s (current: %s)", TAG, id, streamId));
+            return;
+        }
+        Log.i(TAG, String.format("%s Stream complete: %s", TAG, fullText));
+
+        streamDone = true;
+        extractSentences(true);
+        speakNextIfIdle();
+    }
+
+    /** Drop the current stream (e.g. when the chat ends). Anything already being spoken is left to finish. */
+    public static synchronized void reset() { startStream(null, false); }
+
+    /** Barge-in: abandon the current reply (queue and the rest of its stream) and don't chain or restart STT when
+     * the interrupted sentence's callback arrives. Returns the abandoned stream id (null for an unstreamed reply). */
+    public static synchronized @Nullable String cancel() {
+        final String id = streamId;
+        if (id != null) { cancelledId = id; }
+        startStream(null, false);
+        speaking = false;
+        return id;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Internal Logic
+    // --------------------------------------------------------------------------------
+    private static void startStream(@Nullable String id) { startStream(id, false); }
+
+    private static void startStream(@Nullable String id, boolean keepQueued) {
+        if (!keepQueued && !sentences.isEmpty()) {
+            Log.d(TAG, String.format("%s Dropping %d queued sentences from previous stream", TAG, sentences.size()));
+            sentences.clear();
+        }
+        pending  .setLength(0);
+        fullText .setLength(0);
+        streamId      = id;
+        streamDone    = false;
+        intentChecked = false;
+    }
+
+    /** Move every complete sentence from `pending` into the queue. When flushing, whatever is left counts as a sentence. */
+    private static void extractSentences(boolean flush) {
+        int start = 0;
+        for (int i = 0; i < pending.length(); i++) {
+            if (!isBoundary(pending, start, i)) { continue; }
+            addSentence(pending.substring(start, i + 1));
+            start = i + 1;
+        }
+        pending.delete(0, start);
+
+        if (flush) { addSentence(pending.toString()); pending.setLength(0); }
+    }
+
+    /** A boundary is terminal punctuation followed by whitespace (so "3.5" and "Dr. Smith" don't split), or a newline. */
+    private static boolean isBoundary(CharSequence s, int start, int i) {
+        final char c = s.charAt(i);
+        if (c == '\n') { return i > start; }
+        if (c != '.' && c != '!' && c != '?' && c != '…') { return false; }
+        if (i + 1 >= s.length() || !Character.isWhitespace(s.charAt(i + 1))) { return false; } // need to see what follows
+        if (i + 1 - start < MIN_SENTENCE_CHARS) { return false; }
+        return c != '.' || !endsWithAbbreviation(s, i);
+    }
+
+    private static boolean endsWithAbbreviation(CharSequence s, int end) {
+        int wordStart = end;
+        while (wordStart > 0 && !Character.isWhitespace(s.charAt(wordStart - 1))) { wordStart--; }
+        final String word = s.subSequence(wordStart, end + 1).toString().toLowerCase();
+        for (String abbr : ABBREVIATIONS) { if (abbr.equals(word)) return true; }
+        return false;
+    }
+
+    private static void addSentence(String raw) {
+        final String sentence = raw.trim();
+        if (sentence.isEmpty()) { return; }
+        sentences.add(sentence);
+
+        // Behaviors only react to a phrase that opens the reply (IntentDetector.openingIntent), same as a plain llm_response,
+        // so the first sentence is enough to react early
+        if (!intentChecked) { intentChecked = true; IntentDetector.IntentDetection(sentence); }
+    }
+
+    /** Speak the next queued sentence if nothing is currently being spoken. */
+    private static void speakNextIfIdle() {
+        if (speaking) { return; }
+
+        final String next = sentences.poll();
+        if (next == null) {
+            // Nothing left to say -- hand the floor back to the user if the backend is finished
+            if (streamDone) { startStream(null); TurnTracer.mark(TurnTracer.Stage.TTS_END); BuddySTT.start(); }
+            return;
+        }
+
+        speaking = true;
+        Log.d(TAG, String.format("%s Speaking sentence (%d queued): %s", TAG, sentences.size(), next));
+        BuddyTTS.speak(next, SentenceAssembler::onSentenceSpoken);
+    }
+
+    /** TTS completion callback; chains the next sentence. */
+    private static synchronized void onSentenceSpoken() {
+        speaking = false;
+        speakNextIfIdle();
+    }
+
+}
@@ -4,6 +4,8 @@ import android.util.Log;
 
 import com.bfr.buddysdk.BuddySDK;
 
+import com.example.buddychat.utils.SpeechLanguage;
+
 // ================================================================================
 // Setup / Utility for the BuddySDK speech module
 // ================================================================================
@@ -14,12 +16,28 @@ public final class SetupTTS {
     // This loads the speech module from the SDK
     // --------------------------------------------------------------------------------
     // We are just going to do this once in onCreate to make sure the speaker is set
+    // ReadSpeaker stays loaded for the whole run, so changing language later is only a setSpeakerVoice()
+    private static volatile String voice = SpeechLanguage.DEFAULT.voice;
+
     public static void loadTTS() {
         BuddySDK.Speech.loadReadSpeaker();
-        BuddySDK.Speech.setSpeakerVoice("kate");
-        Log.d(TAG, String.format("%s ReadSpeaker loaded, speaker = kate", TAG));
+        BuddySDK.Speech.setSpeakerVoice(voice);
+        Log.d(TAG, String.format("%s ReadSpeaker loaded, speaker = %s", TAG, voice));
     }
 
+    /** Speak with `name` from the next utterance on. Returns how long the SDK took (ms), 0 if the speech service
+     * isn't bound yet (loadTTS() will use it), or -1 if the SDK refused it (the previous voice stays). */
+    public static long setVoice(String name) {
+        if (BuddySDK.Speech == null) { voice = name; return 0L; }
+        final long t0 = System.nanoTime();
+        try                 { BuddySDK.Speech.setSpeakerVoice(name); }
+        catch (Throwable t) { Log.w(TAG, String.format("%s Could not set speaker %s: %s", TAG, name, t)); return -1L; }
+        voice = name;
+        return (System.nanoTime() - t0) / 1_000_000L;
+    }
+
+    public static String getVoice() { return voice; }
+
     // --------------------------------------------------------------------------------
     // Ready checks -- If the SDK class itself is missing, or the service isn't bound yet, return false
     // --------------------------------------------------------------------------------
@@ -0,0 +1,193 @@
+package com.example.buddychat.tts;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.bfr.buddy.ui.shared.LabialExpression;
+
+import com.example.buddychat.utils.ThreadUtils;
+
+// ================================================================================
+// Decide what Buddy says next
+// ================================================================================
+/** SpeechScheduler <br>
+ * Everything BuddyTTS says goes through here, so only one utterance reaches the engine at a time. <ul>
+ *     <li> Priority: SYSTEM (greeting, goodbye) > REPLY (LLM output) > FILLER. A more important utterance stops the
+ *          one being spoken (PREEMPTED) and goes first; the queue is ordered by priority, then arrival. </li>
+ *     <li> Policy, for when something is already speaking or queued: QUEUE waits its turn, REPLACE_LATEST first
+ *          removes queued (not yet started) utterances of the same priority (REPLACED), DROP gives up right away
+ *          unless it would preempt (DROPPED). </li>
+ *     <li> submit() returns a Token; Token.cancel() takes it out of the queue or stops it mid-sentence (CANCELLED). </li>
+ * </ul>
+ * Every utterance's Done fires exactly once, on the UI thread, with how it ended. The engine's own completion
+ * for an utterance we already stopped is ignored, so a late callback can't start the next one twice. */
+public final class SpeechScheduler {
+    private static final String TAG = "[DPU_SpeechScheduler]";
+
+    public enum Priority { SYSTEM, REPLY, FILLER } // most important first
+    public enum Policy   { QUEUE, REPLACE_LATEST, DROP }
+    public enum Outcome  { SPOKEN, CANCELLED, PREEMPTED, REPLACED, DROPPED }
+
+    /** Completion callback; `outcome` says whether the utterance was actually spoken. */
+    public interface Done { void onDone(Outcome outcome); }
+
+    /** One submitted utterance. */
+    public final class Token {
+        final String           text;
+        final LabialExpression expression;
+        final Priority         priority;
+        @Nullable final Done   done;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private boolean started = false; // guarded by the scheduler
+
+        private Token(String text, LabialExpression expression, Priority priority, @Nullable Done done) {
+            this.text = text; this.expression = expression; this.priority = priority; this.done = done;
+        }
+
+        /** Take this utterance out of the queue, or stop it if it is being spoken. No-op once it has ended. */
+        public void cancel() { SpeechScheduler.this.cancel(this); }
+
+        public boolean isFinished() { return finished.get(); }
+    }
+
+    private final Supplier<TTSEngine> engines; // BuddyTTS's current engine (tests swap it)
+
+    // State (guarded by this)
+    private final List<Token> queue = new ArrayList<>(); // waiting, by priority then arrival
+    private @Nullable Token current = null;              // handed to the engine, not finished
+    private long spoken = 0, cancelled = 0, preempted = 0, replaced = 0, dropped = 0;
+
+    SpeechScheduler(Supplier<TTSEngine> engines) { this.engines = engines; }
+
+    // --------------------------------------------------------------------------------
+    // Public API (through BuddyTTS)
+    // --------------------------------------------------------------------------------
+    Token submit(String text, LabialExpression expression, Priority priority, Policy policy, @Nullable Done done) {
+        final Token t = new Token(text, expression, priority, done);
+        final List<Token>   ended    = new ArrayList<>();
+        final List<Outcome> outcomes = new ArrayList<>();
+        Token stop = null, next = null;
+
+        synchronized (this) {
+            final boolean preempts = current != null && priority.ordinal() < current.priority.ordinal();
+            final boolean busy     = current != null || !queue.isEmpty();
+
+            if (policy == Policy.DROP && busy && !preempts) {
+                ended.add(t); outcomes.add(Outcome.DROPPED);
+            }
+            else {
+                if (policy == Policy.REPLACE_LATEST) {
+                    for (Iterator<Token> it = queue.iterator(); it.hasNext(); ) {
+                        final Token q = it.next();
+                        if (q.priority == priority) { it.remove(); ended.add(q); outcomes.add(Outcome.REPLACED); }
+                    }
+                }
+                int i = 0;
+                while (i < queue.size() && queue.get(i).priority.ordinal() <= priority.ordinal()) { i++; }
+                queue.add(i, t);
+
+                if (preempts) { stop = current; current = null; ended.add(stop); outcomes.add(Outcome.PREEMPTED); }
+                if (current == null) { next = takeNext(); }
+            }
+        }
+
+        if (stop != null) { engines.get().stop(); }
+        for (int i = 0; i < ended.size(); i++) { finish(ended.get(i), outcomes.get(i)); }
+        if (next != null) { start(next); }
+        return t;
+    }
+
+    /** Stop whatever is being spoken and empty the queue (barge-in, shutdown). */
+    void cancelAll() {
+        final List<Token> ended = new ArrayList<>();
+        synchronized (this) {
+            if (current != null) { ended.add(current); current = null; }
+            ended.addAll(queue);
+            queue.clear();
+        }
+        engines.get().stop();
+        for (Token t : ended) { finish(t, Outcome.CANCELLED); }
+    }
+
+    synchronized boolean isSpeaking() { return current != null; }
+
+    synchronized String summary() {
+        return String.format(Locale.US, "spoken=%d cancelled=%d preempted=%d replaced=%d dropped=%d queued=%d",
+                spoken, cancelled, preempted, replaced, dropped, queue.size());
+    }
+
+    // --------------------------------------------------------------------------------
+    // Internal Logic
+    // --------------------------------------------------------------------------------
+    private void cancel(Token t) {
+        boolean wasCurrent = false;
+        Token next = null;
+        synchronized (this) {
+            if (current == t) { current = null; wasCurrent = true; next = takeNext(); }
+            else if (!queue.remove(t)) { return; } // already ended
+        }
+        if (wasCurrent) { engines.get().stop(); }
+        finish(t, Outcome.CANCELLED);
+        if (next != null) { start(next); }
+    }
+
+    /** Pop the next utterance and make it current (caller holds the lock). */
+    private @Nullable Token takeNext() {
+        if (queue.isEmpty()) { return null; }
+        current = queue.remove(0);
+        return current;
+    }
+
+    private void start(Token t) {
+        if (t.isFinished()) { return; } // cancelled before it got here
+        final TTSEngine e = engines.get();
+        if (!e.isReady()) { onEngineDone(t, Outcome.DROPPED); return; }
+
+        synchronized (this) { t.started = true; }
+        BuddyTTS.onUtteranceStart(t.text);
+        e.speak(t.text, t.expression, () -> onEngineDone(t, Outcome.SPOKEN));
+        if (t.isFinished()) { e.stop(); } // cancelled while the engine was being called
+    }
+
+    /** The engine finished `t` (or failed, which it reports the same way). Ignored if we already ended it. */
+    private void onEngineDone(Token t, Outcome outcome) {
+        final Token next;
+        synchronized (this) {
+            if (current != t) { return; }
+            current = null;
+            next = takeNext();
+        }
+        finish(t, outcome);
+        if (next != null) { start(next); }
+    }
+
+    /** End an utterance: count it and run its callback, exactly once. */
+    private void finish(Token t, Outcome outcome) {
+        if (!t.finished.compareAndSet(false, true)) { return; }
+        final boolean wasStarted;
+        synchronized (this) {
+            wasStarted = t.started;
+            switch (outcome) {
+                case SPOKEN   : spoken++;    break;
+                case CANCELLED: cancelled++; break;
+                case PREEMPTED: preempted++; break;
+                case REPLACED : replaced++;  break;
+                default       : dropped++;   break;
+            }
+        }
+        if (wasStarted) { BuddyTTS.onUtteranceEnd(); }
+        if (outcome != Outcome.SPOKEN) {
+            Log.d(TAG, String.format("%s %s %s: \"%s\" | %s", TAG, t.priority, outcome, t.text, summary()));
+        }
+        final Done done = t.done;
+        if (done != null) { ThreadUtils.runOnUiThread(() -> done.onDone(outcome)); }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.example.buddychat.tts;
+
+import com.bfr.buddy.ui.shared.LabialExpression;
+
+// ================================================================================
+// What BuddyTTS needs from a speech engine
+// ================================================================================
+/** TTSEngine <br>
+ * On the robot this is the BuddySDK ReadSpeaker voice (BuddyTTS.SDK_ENGINE); JVM tests install a fake
+ * through BuddyTTS.setEngine() so the chat pipeline can run without a robot. */
+public interface TTSEngine {
+    boolean isReady();
+
+    /** Speak `text`; `onDone` must be called exactly once, when speech finishes or fails. */
+    void speak(String text, LabialExpression expression, Runnable onDone);
+
+    void stop();
+}
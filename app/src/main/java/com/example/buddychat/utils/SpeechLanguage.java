@@ -0,0 +1,39 @@
+package com.example.buddychat.utils;
+
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+// ================================================================================
+// Languages Buddy can listen and speak in
+// ================================================================================
+/** SpeechLanguage <br>
+ * One entry per supported language: the STT locale, the Cerence FCF asset for that locale, and the ReadSpeaker
+ * voice. SetupSTT / SetupTTS read from here instead of hard-coding English; LanguageSwitcher picks the active one. */
+public enum SpeechLanguage {
+    ENGLISH(Locale.ENGLISH, "audio_en.fcf", "kate"  ),
+    FRENCH (Locale.FRENCH,  "audio_fr.fcf", "roxane");
+
+    public static final SpeechLanguage DEFAULT = ENGLISH;
+
+    public final Locale locale;
+    public final String fcf;   // Cerence grammar asset
+    public final String voice; // ReadSpeaker speaker name (must be installed on the robot)
+
+    SpeechLanguage(Locale locale, String fcf, String voice) { this.locale = locale; this.fcf = fcf; this.voice = voice; }
+
+    /** Parse a profile / backend language tag ("fr", "fr-FR", "fr_CA", "French"); null if unsupported. */
+    public static @Nullable SpeechLanguage fromTag(@Nullable String tag) {
+        if (tag == null) { return null; }
+        final String t = tag.trim().toLowerCase(Locale.ROOT);
+        if (t.isEmpty()) { return null; }
+        for (SpeechLanguage l : values()) {
+            final String code = l.locale.getLanguage();
+            if (t.equals(code) || t.startsWith(code + "-") || t.startsWith(code + "_")
+                    || t.equals(l.name().toLowerCase(Locale.ROOT))) { return l; }
+        }
+        return null;
+    }
+
+    public String tag() { return locale.getLanguage(); }
+}
@@ -3,6 +3,11 @@ package com.example.buddychat.utils;
 import android.os.Handler;
 import android.os.Looper;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.Nullable;
 
 // ================================================================================
 // Utility class to provide threading/execution to other classes.
@@ -17,10 +22,34 @@ public final class ThreadUtils {
     // The Executor for passing to libraries/callbacks that require an Executor interface
     public static final Executor MAIN_EXECUTOR = MAIN_HANDLER::post;
 
+    // Stand-in for the main thread when there is no Looper (JVM tests/benchmarks); null on the robot
+    private static volatile Executor mainOverride = null;
+
     /** [Helper] Run a Runnable on the UI thread safely.  */
     public static void runOnUiThread(Runnable action) {
         if (action == null) return;
-        MAIN_HANDLER.post(action);
+        final Executor override = mainOverride;
+        if (override != null) { override.execute(action); }
+        else                  { MAIN_HANDLER.post(action); }
+    }
+
+    /** [Helper] Run a Runnable on the UI thread after `delayMs` (honors setMainExecutor, unlike a Handler of your own). */
+    public static void runOnUiThreadDelayed(Runnable action, long delayMs) {
+        if (action == null) return;
+        if (mainOverride != null) { Delays.TIMER.schedule(() -> runOnUiThread(action), delayMs, TimeUnit.MILLISECONDS); }
+        else                      { MAIN_HANDLER.postDelayed(action, delayMs); }
+    }
+
+    /** Route runOnUiThread() / runOnUiThreadDelayed() to another executor (null restores the main Looper). Only for JVM tests. */
+    public static void setMainExecutor(@Nullable Executor executor) { mainOverride = executor; }
+
+    // Only created if a test overrides the main thread (the robot posts delays to the Looper)
+    private static final class Delays {
+        static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "ThreadUtils-delays");
+            t.setDaemon(true);
+            return t;
+        });
     }
 
 }
@@ -1,7 +1,9 @@
 package com.example.buddychat.utils;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -29,8 +31,10 @@ public class UiUtils {
 
     /** Master method for standard toasts */
     public static void showToast(final String message, final int duration) {
+        final Context context = MainApplication.getAppContext();
+        if (context == null) { Log.d(TAG, String.format("%s (no UI) toast: %s", TAG, message)); return; }
         runOnMain(() -> {
-            Toast.makeText(MainApplication.getAppContext(), message, duration).show();
+            Toast.makeText(context, message, duration).show();
         });
     }
 
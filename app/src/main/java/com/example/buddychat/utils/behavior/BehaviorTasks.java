@@ -25,6 +25,12 @@ public final class BehaviorTasks {
     // ToDo: Not sure if this is required anymore, depends on if `Task` gets automatically set to null after completion
     public static volatile boolean isRunning = false;
 
+    /** Plays a behavior instead of the BuddySDK (JVM tests); `onDone` is null for looping behaviors. */
+    public interface Player { void play(Behavior mode, @Nullable Runnable onDone); }
+
+    // Stand-in for the robot's BI tasks when there is no SDK; null on the robot
+    private static volatile Player playerOverride = null;
+
     // --------------------------------------------------------------------------------
     // Configuration
     // --------------------------------------------------------------------------------
@@ -52,6 +58,9 @@ public final class BehaviorTasks {
         startBehavior(Behavior.SLEEP, null);
     }
 
+    /** Play behaviors with `player` instead of the BuddySDK (null restores the SDK). Only for JVM tests. */
+    public static void setPlayer(@Nullable Player player) { playerOverride = player; }
+
     /** Stops whatever task the robot is currently doing. */
     public static synchronized void stopCurrentTask() {
         if (currentTask != null) {
@@ -74,6 +83,9 @@ public final class BehaviorTasks {
         Log.i(TAG, String.format("%s Starting Behavior: %s", TAG, mode.sdkName));
         currentMode = mode;
 
+        final Player player = playerOverride;
+        if (player != null) { player.play(mode, onSuccess); return; }
+
         // Create the task & start it
         try {
             currentTask = BuddySDK.Companion.createBICategoryTask(mode.sdkName, null, null, true);
@@ -26,6 +26,7 @@ public final class Emotions {
     /** Set the Positivity & Energy levels of Buddy's face (only works if face is NEUTRAL). */
     public static void setPositivityEnergy(float iPositivity, float iEnergy) {
         Log.d(TAG, String.format("%s Positivity: %.3f, Energy: %.3f", TAG, iPositivity, iEnergy));
+        if (noFace()) { return; }
         BuddySDK.UI.setFacePositivity(iPositivity);
         BuddySDK.UI.setFaceEnergy    (iEnergy    );
     }
@@ -34,7 +35,7 @@ public final class Emotions {
     // Mood-related methods
     // --------------------------------------------------------------------
     /** Set the Mood directly (changes Buddy's facial expression & LED colors). Overloaded. */
-    public static void setMood(FacialExpression iExpression) { BuddySDK.UI.setMood(iExpression); }
+    public static void setMood(FacialExpression iExpression) { if (!noFace()) { BuddySDK.UI.setMood(iExpression); } }
 
     /** Overloaded method to allow calls with raw strings for the desired mood. */
     public static void setMood(String moodString) { setMood(parseExpression(moodString)); }
@@ -48,6 +49,7 @@ public final class Emotions {
     public static void setMood(FacialExpression iExpression, long resetMs) {
         // No need to do the callback if we are already setting it to neutral.
         if (iExpression == FacialExpression.NEUTRAL ) { setMood(iExpression); return; }
+        if (noFace()) { return; }
 
         // Set mood with a reset callback
         final int myVersion = ++version;
@@ -75,6 +77,9 @@ public final class Emotions {
         catch (IllegalArgumentException e) { return FacialExpression.NEUTRAL;      }
     }
 
+    /** The face service isn't bound (SDK not ready yet, or running off-robot in a JVM test). */
+    private static boolean noFace() { return BuddySDK.UI == null; }
+
     /** Cancel pending callbacks to reset the facial animation. */
     private static void cancelPending() {
         if (pendingReset != null) { MAIN.removeCallbacks(pendingReset); pendingReset = null; }
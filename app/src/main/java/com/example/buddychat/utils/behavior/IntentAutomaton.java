@@ -0,0 +1,119 @@
+package com.example.buddychat.utils.behavior;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// ================================================================================
+// One-pass phrase matcher behind IntentDetector
+// ================================================================================
+/** IntentAutomaton <br>
+ * All phrases of all ranks compiled into one Aho-Corasick automaton, completed into a DFA over a 28-symbol
+ * alphabet (a-z, word break, any other letter/digit), so find() reads each char once with one table lookup. <br>
+ * Text is normalized on the fly: lower-cased, apostrophes dropped ("can't" = "cant"), every run of spaces and
+ * punctuation read as a single word break, with a break added at both ends. Phrases are stored with a break on
+ * each side, so they only match whole words. <br>
+ * find() returns the rank of the leftmost match; at the same start the lower rank wins. It stops as soon as no
+ * longer phrase could still start at or before the best one (anchored: at the first word). No allocation after construction. */
+final class IntentAutomaton {
+    private static final int BREAK = 26, OTHER = 27, SYMBOLS = 28;
+    private static final int SKIP  = -1; // apostrophes: "don't" reads as "dont"
+
+    private final int[] next;    // state * SYMBOLS + symbol -> state (complete: no failure links at scan time)
+    private final int[] outLen;  // longest phrase ending in this state, in symbols (0 = none)
+    private final int[] outRank; // its rank
+    private final int   maxLen;
+
+    /** `phrasesByRank[r]` are the phrases of rank r (lower rank wins ties); words separated by single spaces. */
+    IntentAutomaton(String[]... phrasesByRank) {
+        final List<int[]> go   = new ArrayList<>();
+        final List<int[]> out  = new ArrayList<>(); // {len, rank}
+        go.add(emptyRow()); out.add(new int[] { 0, -1 });
+
+        // 1. Trie of " phrase "
+        int longest = 0;
+        for (int rank = 0; rank < phrasesByRank.length; rank++) {
+            for (String phrase : phrasesByRank[rank]) {
+                final String p = " " + phrase + " ";
+                int state = 0, len = 0;
+                for (int i = 0; i < p.length(); i++) {
+                    final int sym = symbol(p.charAt(i));
+                    if (sym == SKIP) { continue; }
+                    if (go.get(state)[sym] < 0) { go.get(state)[sym] = go.size(); go.add(emptyRow()); out.add(new int[] { 0, -1 }); }
+                    state = go.get(state)[sym];
+                    len++;
+                }
+                final int[] o = out.get(state);
+                if (o[0] == 0 || rank < o[1]) { o[0] = len; o[1] = rank; }
+                longest = Math.max(longest, len);
+            }
+        }
+
+        // 2. Failure links (breadth first), folded into the transition table; each state keeps its longest output
+        final int[] fail = new int[go.size()];
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int a = 0; a < SYMBOLS; a++) {
+            final int v = go.get(0)[a];
+            if (v < 0) { go.get(0)[a] = 0; } else { fail[v] = 0; queue.add(v); }
+        }
+        while (!queue.isEmpty()) {
+            final int u = queue.poll();
+            for (int a = 0; a < SYMBOLS; a++) {
+                final int v = go.get(u)[a];
+                if (v < 0) { go.get(u)[a] = go.get(fail[u])[a]; continue; }
+                fail[v] = go.get(fail[u])[a];
+                if (out.get(v)[0] == 0) { out.set(v, out.get(fail[v])); } // a suffix phrase (own phrase is always longer)
+                queue.add(v);
+            }
+        }
+
+        // 3. Flatten
+        next    = new int[go.size() * SYMBOLS];
+        outLen  = new int[go.size()];
+        outRank = new int[go.size()];
+        for (int s = 0; s < go.size(); s++) {
+            System.arraycopy(go.get(s), 0, next, s * SYMBOLS, SYMBOLS);
+            outLen [s] = out.get(s)[0];
+            outRank[s] = out.get(s)[1];
+        }
+        maxLen = longest;
+    }
+
+    /** Rank of the leftmost whole-word phrase in `s` (ties: lowest rank), or -1. `anchored`: only a phrase starting at
+     * the first word counts (leading spaces/punctuation are skipped). */
+    int find(CharSequence s, boolean anchored) {
+        int state = next[BREAK]; // the break before the text
+        int pos = 1, bestStart = Integer.MAX_VALUE, bestRank = -1;
+        boolean brk = true;
+
+        for (int i = 0, n = s.length(); i <= n; i++) {
+            final int sym = (i == n) ? BREAK : symbol(s.charAt(i));
+            if (sym == SKIP || (sym == BREAK && brk)) { continue; }
+            brk   = (sym == BREAK);
+            state = next[state * SYMBOLS + sym];
+            pos++;
+
+            final int len   = outLen[state];
+            final int start = pos - len;
+            if (len > 0 && (!anchored || start == 0)) {
+                if (start < bestStart || (start == bestStart && outRank[state] < bestRank)) { bestStart = start; bestRank = outRank[state]; }
+            }
+            if (pos - (anchored ? 0 : bestStart) >= maxLen) { break; } // anything ending later starts after the best match (or the first word)
+        }
+        return bestRank;
+    }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    private static int symbol(char c) {
+        if (c == '\'' || c == '’') { return SKIP; }
+        final char l = Character.toLowerCase(c);
+        if (l >= 'a' && l <= 'z')            { return l - 'a'; }
+        return Character.isLetterOrDigit(l) ? OTHER : BREAK;
+    }
+
+    private static int[] emptyRow() { final int[] r = new int[SYMBOLS]; Arrays.fill(r, -1); return r; }
+
+}
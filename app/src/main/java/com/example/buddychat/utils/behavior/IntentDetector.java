@@ -1,7 +1,5 @@
 package com.example.buddychat.utils.behavior;
 
-import java.util.regex.Pattern;
-
 import android.util.Log;
 
 import com.bfr.buddy.ui.shared.FacialExpression;
@@ -22,65 +20,55 @@ public final class IntentDetector {
     // Types of results possible
     public enum Intent { AFFIRM, NEGATE, REASSURE, APOLOGY, UNKNOWN }
 
-    // Define "intent" phrases (use \s+ inside multi-word phrases)
-    private static final String AFFIRM_SRC = "yes|y(?:ep|ea?h)|sure|of\\s+course|absolutely|affirmative|correct|indeed|right|certainly";
-    private static final String NEGATE_SRC = "no|nope|nah|negative|never|incorrect|wrong";
+    // Intent phrases, whole words; apostrophes are ignored when matching ("can't" = "cant", "it’s" = "its")
+    private static final String[] AFFIRM_PHRASES = {
+            "yes", "yep", "yeah", "yeh", "sure", "of course", "absolutely", "affirmative", "correct", "indeed", "right", "certainly" };
+    private static final String[] NEGATE_PHRASES = {
+            "no", "nope", "nah", "negative", "never", "incorrect", "wrong" };
 
     // Reassurance / positive acknowledgements
-    private static final String REASSURE_SRC =
-            "(?:no\\s+(?:worries|problem(?:s)?|big\\s+deal|sweat|trouble)\\b"
-                    + "|all\\s+good\\b"
-                    + "|it'?s\\s+(?:ok(?:ay)?|fine|alright)\\b"
-                    + "|that'?s\\s+(?:ok(?:ay)?|fine|alright)\\b"
-                    + "|you'?re\\s+fine\\b"
-                    + "|you(?:\\s*’|\\s*')?re\\s+welcome\\b|you\\s+are\\s+welcome\\b"
-                    + "|thank\\s+you\\b|thanks\\b|cheers\\b|great\\b|awesome\\b)";
+    private static final String[] REASSURE_PHRASES = {
+            "no worries", "no problem", "no problems", "no big deal", "no sweat", "no trouble",
+            "all good",
+            "its ok", "its okay", "its fine", "its alright",
+            "thats ok", "thats okay", "thats fine", "thats alright",
+            "youre fine",
+            "youre welcome", "you re welcome", "you are welcome",
+            "thank you", "thanks", "cheers", "great", "awesome" };
 
     // Apology / limitation / decline ("sorry...", "I can't...", etc.)
-    private static final String APOLOGY_SRC =
-            "(?:i\\s*(?:am|['’]?m)\\s+sorry\\b"
-                    + "|sorry\\b|my\\s+bad\\b|i\\s+apologize\\b|apologies\\b|pardon\\b"
-                    + "|i\\s+(?:can(?:not|\\s*not|\\'?t)|won'?t|shouldn'?t)\\b"
-                    + "|i(?:\\s*’|\\s*')?m\\s+(?:unable|not\\s+able)\\b"
-                    + "|won'?t\\s+be\\s+able\\s+to\\b"
-                    + "|can(?:not|\\'?t)\\b)";
-
-    // Allow leading whitespace/punctuation, then phrase, then optional punctuation/space
-    private static final String LEAD = "^\\s*[\\p{Punct}\\s]*";
-    private static final String TAIL = "[\\p{Punct}\\s]*$?";
-
-    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
-
-    // Newer two cases
-    private static final Pattern REASSURE = Pattern.compile(LEAD + REASSURE_SRC + TAIL, FLAGS);
-    private static final Pattern APOLOGY  = Pattern.compile(LEAD +  APOLOGY_SRC + TAIL, FLAGS);
-
-    // Allow leading spaces, then a match, then any punctuation/spaces
-    private static final Pattern AFFIRM = Pattern.compile("^\\s*" + AFFIRM_SRC + "\\b[\\p{Punct}\\s]*", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-    private static final Pattern NEGATE = Pattern.compile("^\\s*" + NEGATE_SRC + "\\b[\\p{Punct}\\s]*", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-
-    // Check an utterances intent (order matters, reassurance beats negation)
-    // ToDo: Need to make it so it always picks the first one if there are multiple matches
+    private static final String[] APOLOGY_PHRASES = {
+            "i am sorry", "im sorry", "i m sorry",
+            "sorry", "my bad", "i apologize", "apologies", "pardon",
+            "i cannot", "i can not", "i cant", "i wont", "i shouldnt",
+            "im unable", "i m unable", "im not able", "i m not able",
+            "wont be able to",
+            "cannot", "cant" };
+
+    // Tie-break when two phrases start at the same word (e.g. "no worries" beats "no")
+    private static final Intent[] ORDER = { Intent.APOLOGY, Intent.REASSURE, Intent.NEGATE, Intent.AFFIRM };
+    private static final IntentAutomaton PHRASES = new IntentAutomaton(APOLOGY_PHRASES, REASSURE_PHRASES, NEGATE_PHRASES, AFFIRM_PHRASES);
+
+    /** Intent of the first phrase anywhere in the utterance (one pass, no allocation; used on what the user said). */
     public static Intent classify(String s) {
         if (s == null) return Intent.UNKNOWN;
-        if (APOLOGY .matcher(s).find()) return Intent.APOLOGY;
-        if (NEGATE  .matcher(s).find()) return Intent.NEGATE;
-        if (REASSURE.matcher(s).find()) return Intent.REASSURE;
-        if (AFFIRM  .matcher(s).find()) return Intent.AFFIRM;
-        return Intent.UNKNOWN;
+        final int rank = PHRASES.find(s, false);
+        return (rank < 0) ? Intent.UNKNOWN : ORDER[rank];
+    }
+
+    /** Intent of a phrase that opens the text, else UNKNOWN ("No worries, ..." but not "There is no rain today"). */
+    public static Intent openingIntent(String s) {
+        if (s == null) return Intent.UNKNOWN;
+        final int rank = PHRASES.find(s, true);
+        return (rank < 0) ? Intent.UNKNOWN : ORDER[rank];
     }
 
     // -----------------------------------------------------------------------
     // Specific Yes/No Helpers (so callers don't need the Intent enum)
     // -----------------------------------------------------------------------
-    public static boolean isYes(String s) {
-        if (s == null) { return false;                      }
-        else           { return (AFFIRM.matcher(s).find()); }
-    }
-    public static boolean isNo(String s) {
-        if (s == null) { return false;                      }
-        else           { return (NEGATE.matcher(s).find()); }
-    }
+    // Start-anchored, like the original AFFIRM/NEGATE patterns ("I don't know, no idea" is not a no)
+    public static boolean isYes(String s) { return openingIntent(s) == Intent.AFFIRM; }
+    public static boolean isNo (String s) { return openingIntent(s) == Intent.NEGATE; }
 
     // =======================================================================
     // Buddy-specific behavior controls
@@ -91,12 +79,14 @@ public final class IntentDetector {
      *     <li> Tell the robot to nod its head yes or no. </li>
      *     <li> Change the valence and arousal (assuming the face is set to "NEUTRAL"). </li>
      * </ol>
-     * We will start off with the second mode until the nodding is functional.
+     * We will start off with the second mode until the nodding is functional. <br>
+     * Only a phrase that opens the reply counts (openingIntent), so a "no" in the middle of a sentence doesn't shake the head.
      */
     public static void IntentDetection(String s) {
-        final Intent intent = classify(s);
+        final Intent intent = openingIntent(s);
         Log.d(TAG, String.format("%s Detected intent: %s (%s response mode)", TAG, intent, MODE));
-        intentMode1(intent);
+        try                         { intentMode1(intent); }
+        catch (RuntimeException ex) { Log.w(TAG, String.format("%s Intent behavior failed: %s", TAG, ex)); } // e.g. no motors off-robot
     }
 
     // Mode #1: Tell Buddy to shake their head 'no' or nod their head 'yes'
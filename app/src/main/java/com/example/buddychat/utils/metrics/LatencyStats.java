@@ -0,0 +1,114 @@
+package com.example.buddychat.utils.metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+// =======================================================================
+// Latency Stats
+// =======================================================================
+/**
+ * Thread-safe rolling window of latency samples (milliseconds). <ul>
+ *     <li> record() overwrites the oldest sample when full </li>
+ *     <li> percentile() sorts a copy of the window, so it is meant for occasional reads, not per-sample </li>
+ *     <li> summary() gives a one-line string for logs </li>
+ * </ul>
+ */
+public final class LatencyStats {
+    private final String        name;
+    private final long[]        buf;
+    private final int           capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Ring state
+    private int  head  = 0;  // index of oldest element
+    private int  size  = 0;  // number of valid elements
+    private long total = 0;  // samples ever recorded
+    private long last  = -1; // most recent sample
+
+    // -----------------------------------------------------------------------
+    // Instantiate
+    // -----------------------------------------------------------------------
+    /**
+     * @param name      label used in summary()
+     * @param capacity  max number of samples to retain (>=1)
+     */
+    public LatencyStats(String name, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        this.name     = name;
+        this.buf      = new long[capacity];
+        this.capacity = capacity;
+    }
+
+    /** Record a sample; overwrites oldest when full. Negative samples are ignored. */
+    public void record(long ms) {
+        if (ms < 0) return;
+        lock.lock();
+        try {
+            buf[(head + size) % capacity] = ms;
+            if (size == capacity) { head = (head + 1) % capacity; }
+            else                  { size++; }
+            total++;
+            last = ms;
+        } finally { lock.unlock(); }
+    }
+
+    /** Clear all samples. */
+    public void clear() { lock.lock(); try { head = 0; size = 0; total = 0; last = -1; } finally { lock.unlock(); } }
+
+    /** Current number of samples in the window. */
+    public int size() { lock.lock(); try { return size; } finally { lock.unlock(); } }
+
+    /** Samples recorded since creation/clear (including ones that fell out of the window). */
+    public long count() { lock.lock(); try { return total; } finally { lock.unlock(); } }
+
+    /** Most recent sample, or -1 if there is none. */
+    public long last() { lock.lock(); try { return last; } finally { lock.unlock(); } }
+
+    /** Nearest-rank percentile over the window (p in [0,100]); -1 if empty. */
+    public long percentile(double p) {
+        final long[] sorted = sortedSnapshot();
+        if (sorted.length == 0) return -1;
+        return rank(sorted, p);
+    }
+
+    /** Mean over the window; -1 if empty. */
+    public double mean() { lock.lock();
+        try {
+            if (size == 0) return -1;
+            long sum = 0;
+            for (int i = 0; i < size; i++) sum += buf[(head + i) % capacity];
+            return (double) sum / size;
+        } finally { lock.unlock(); }
+    }
+
+    /** e.g. "rtt n=42 p50=80 p90=140 p99=310 max=330 (ms)" */
+    public String summary() {
+        final long[] s = sortedSnapshot();
+        if (s.length == 0) return String.format(Locale.US, "%s n=0", name);
+        return String.format(Locale.US, "%s n=%d p50=%d p90=%d p99=%d max=%d (ms)",
+                name, s.length, rank(s, 50), rank(s, 90), rank(s, 99), s[s.length - 1]);
+    }
+
+    public String name() { return name; }
+
+    // -----------------------------------------------------------------------
+    // Helpers
+    // -----------------------------------------------------------------------
+    private long[] sortedSnapshot() { lock.lock();
+        final long[] out;
+        try {
+            out = new long[size];
+            for (int i = 0; i < size; i++) out[i] = buf[(head + i) % capacity];
+        } finally { lock.unlock(); }
+        Arrays.sort(out);
+        return out;
+    }
+
+    private static long rank(long[] sorted, double p) {
+        final double clamped = Math.max(0, Math.min(100, p));
+        final int idx = (int) Math.ceil(clamped / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, idx)];
+    }
+
+}
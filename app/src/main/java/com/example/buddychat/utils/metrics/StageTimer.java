@@ -0,0 +1,52 @@
+package com.example.buddychat.utils.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// =======================================================================
+// Stage Timer
+// =======================================================================
+/**
+ * Records when each named stage of a multi-step process starts and ends, relative to a common
+ * start time. Stages may overlap; summary() shows each one as "start->end (duration)". <br>
+ * Thread-safe: stages are usually ended from SDK/OkHttp callback threads.
+ */
+public final class StageTimer {
+    private final String name;
+    private final long   t0 = System.nanoTime();
+    private final Map<String, long[]> stages = new LinkedHashMap<>(); // name -> {startMs, endMs or -1}
+
+    public StageTimer(String name) { this.name = name; }
+
+    /** Mark a stage as started (restarting a stage overwrites it). */
+    public synchronized void begin(String stage) { stages.put(stage, new long[] { elapsedMs(), -1 }); }
+
+    /** Mark a stage as finished; a stage that was never begun is treated as starting at t0. Only the first end counts. */
+    public synchronized void end(String stage) {
+        final long[] s = stages.get(stage);
+        if      (s == null) { stages.put(stage, new long[] { 0, elapsedMs() }); }
+        else if (s[1] < 0 ) { s[1] = elapsedMs(); }
+    }
+
+    /** Duration of a finished stage in ms (-1 if unknown/unfinished). */
+    public synchronized long durationMs(String stage) {
+        final long[] s = stages.get(stage);
+        return (s == null || s[1] < 0) ? -1 : s[1] - s[0];
+    }
+
+    /** Milliseconds since this timer was created. */
+    public long elapsedMs() { return (System.nanoTime() - t0) / 1_000_000L; }
+
+    /** e.g. "startup @2310ms | ws_connect 0->820 (820ms) | wake_bi 1->2100 (2099ms) | greeting 2101->? (...)" */
+    public synchronized String summary() {
+        final StringBuilder sb = new StringBuilder(String.format(Locale.US, "%s @%dms", name, elapsedMs()));
+        for (Map.Entry<String, long[]> e : stages.entrySet()) {
+            final long[] s = e.getValue();
+            if (s[1] < 0) { sb.append(String.format(Locale.US, " | %s %d->? (running)", e.getKey(), s[0])); }
+            else          { sb.append(String.format(Locale.US, " | %s %d->%d (%dms)", e.getKey(), s[0], s[1], s[1] - s[0])); }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.example.buddychat;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Shared harness for the plain-JVM micro-benchmarks (FrameCodecBenchmark, IntentDetectorBenchmark):
+ * fixed warm-up/measure round counts, a sink the JIT can't drop, and time + allocation per operation.
+ */
+public final class MicroBench {
+    private MicroBench() {} // no instances
+
+    public static final int WARMUP_ROUNDS  = 20_000;
+    public static final int MEASURE_ROUNDS = 100_000;
+
+    // Sink so the JIT can't drop the work
+    public static double sink;
+
+    public interface Body { void run() throws Exception; }
+
+    public static final class Result {
+        public final String name; public final String unit; public final double nsPerOp; public final double bytesPerOp;
+        Result(String name, String unit, double ns, double bytes) { this.name = name; this.unit = unit; this.nsPerOp = ns; this.bytesPerOp = bytes; }
+        @Override public String toString() {
+            return String.format(Locale.US, "%-14s %8.1f ns/%s %8.1f B/%s", name, nsPerOp, unit, bytesPerOp, unit);
+        }
+    }
+
+    /** Run `body` (which must do MEASURE_ROUNDS operations) twice and report per-operation time and allocation of the
+     * second run; the first lets the JIT compile the body's own loop, not just the code it calls. */
+    public static Result measure(String name, String unit, Body body) throws Exception {
+        body.run();
+        final long bytes0 = allocatedBytes();
+        final long t0     = System.nanoTime();
+        body.run();
+        final long t1     = System.nanoTime();
+        final long bytes1 = allocatedBytes();
+        return new Result(name, unit, (t1 - t0) / (double) MEASURE_ROUNDS,
+                bytes0 < 0 ? -1 : (bytes1 - bytes0) / (double) MEASURE_ROUNDS);
+    }
+
+    /** Bytes allocated by this thread so far (HotSpot only; -1 elsewhere). */
+    public static long allocatedBytes() {
+        try {
+            com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            return mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+        } catch (Throwable t) { return -1; }
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.example.buddychat.chat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+
+import okhttp3.HttpUrl;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in for the cognibot backend: /api/health/, /api/token/, /api/profile/ and the ws/chat/
+ * socket, with scriptable delays. Every "transcription" is acked, then answered with the reply from
+ * replyFor() as llm_delta chunks (a few words each) and an llm_done. Pings get pongs. Each socket gets a
+ * "session" frame first, and reply frames carry a server_seq (resuming is accepted but nothing is replayed).
+ * A "transcription_partial" starts the LLM early: a final that commits it only waits for what's left of
+ * firstTokenDelayMs. A "cancel_response" stops the stream it names.
+ * Delays are plain fields so a test can model a slow backend or a slow LLM.
+ */
+final class FakeBackend {
+
+    // Scriptable delays (ms)
+    volatile long tokenDelayMs      = 30;   // /api/token/
+    volatile long profileDelayMs    = 20;   // /api/profile/
+    volatile long firstTokenDelayMs = 250;  // transcription -> first llm_delta (LLM think time)
+    volatile long chunkIntervalMs   = 40;   // between llm_delta chunks
+    volatile int  wordsPerChunk     = 4;
+
+    // When each transcription arrived (text -> nanoTime), for splitting client vs. backend time
+    final Map<String, Long> receivedAt   = new ConcurrentHashMap<>();
+    final Map<String, Long> firstTokenAt = new ConcurrentHashMap<>(); // text -> nanoTime its first llm_delta was sent
+    final AtomicInteger     transcriptions = new AtomicInteger();
+    final AtomicInteger     cancels        = new AtomicInteger();
+    // Scheduled chunks of each reply still streaming (id -> futures), so a cancel can stop them
+    private final Map<String, List<ScheduledFuture<?>>> streams = new ConcurrentHashMap<>();
+    // Speculations in progress (spec_id -> nanoTime the LLM started on its latest rev)
+    private final Map<String, Long> specStartedAt = new ConcurrentHashMap<>();
+
+    private final MockWebServer             server = new MockWebServer();
+    private final ScheduledExecutorService  llm    = Executors.newSingleThreadScheduledExecutor();
+    private int  replyId   = 0;
+    private long serverSeq = 0;
+
+    // --------------------------------------------------------------------------------
+    // Lifecycle
+    // --------------------------------------------------------------------------------
+    HttpUrl start() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override public MockResponse dispatch(RecordedRequest req) { return route(req); }
+        });
+        server.start();
+        return server.url("/");
+    }
+
+    void shutdown() throws IOException {
+        llm.shutdownNow();
+        server.shutdown();
+    }
+
+    /** The reply for one user utterance (override in a test for different lengths). */
+    String replyFor(String utterance) {
+        return "I heard you say " + utterance.toLowerCase() + ". That sounds like a lovely way to spend the afternoon. "
+                + "Tell me more about it when you are ready.";
+    }
+
+    // --------------------------------------------------------------------------------
+    // REST
+    // --------------------------------------------------------------------------------
+    private MockResponse route(RecordedRequest req) {
+        final String path = req.getPath() == null ? "" : req.getPath();
+        if (path.startsWith("/api/health/" )) { return json("{\"status\":\"ok\"}", 0); }
+        if (path.startsWith("/api/token/"  )) { return json("{\"access\":\"" + jwt(15 * 60) + "\",\"refresh\":\"r\"}", tokenDelayMs); }
+        if (path.startsWith("/api/profile/")) {
+            return json("{\"plwd\":{\"username\":\"bench\",\"first_name\":\"Bench\",\"last_name\":\"User\"}}", profileDelayMs);
+        }
+        if (path.startsWith("/ws/chat/"    )) { return new MockResponse().withWebSocketUpgrade(new ChatSocket(req.getRequestUrl())); }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    private static MockResponse json(String body, long delayMs) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body)
+                .setHeadersDelay(delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** An unsigned JWT that only carries "exp" (all TokenManager reads). */
+    private static String jwt(long ttlSeconds) {
+        final Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+        final long exp = System.currentTimeMillis() / 1000 + ttlSeconds;
+        return enc.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+             + enc.encodeToString(("{\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8)) + ".sig";
+    }
+
+    // --------------------------------------------------------------------------------
+    // WebSocket
+    // --------------------------------------------------------------------------------
+    private final class ChatSocket extends WebSocketListener {
+        private final HttpUrl url;
+        ChatSocket(HttpUrl url) { this.url = url; }
+
+        @Override public void onOpen(WebSocket ws, Response response) {
+            final String resume = url.queryParameter("session_id");
+            ws.send(new JSONObject().put("type", "session").put("session_id", resume != null ? resume : "s-1")
+                    .put("resume_token", "rt").put("resumed", resume != null).toString());
+        }
+        @Override public void onClosing(WebSocket ws, int code, String reason) { ws.close(1000, null); }
+
+        @Override public void onMessage(WebSocket ws, String text) {
+            final JSONObject in = new JSONObject(text);
+            switch (in.optString("type")) {
+                case "ping":
+                    ws.send(new JSONObject().put("type", "pong").put("id", in.optLong("id")).toString());
+                    break;
+                case "cancel_response":
+                    cancels.incrementAndGet();
+                    final List<ScheduledFuture<?>> pending = streams.remove(in.optString("id"));
+                    if (pending != null) { for (ScheduledFuture<?> f : pending) f.cancel(false); }
+                    break;
+                case "transcription_partial":
+                    specStartedAt.put(in.optString("spec_id"), System.nanoTime()); // each rev restarts generation
+                    break;
+                case "transcription":
+                    final String utterance = in.optString("data");
+                    final long   now       = System.nanoTime();
+                    receivedAt.put(utterance, now);
+                    transcriptions.incrementAndGet();
+                    if (in.has("seq")) { ws.send(new JSONObject().put("type", "ack").put("seq", in.optLong("seq")).toString()); }
+                    final Long started = specStartedAt.remove(in.optString("spec_id"));
+                    final long headStartMs = (started != null && "commit".equals(in.optString("speculation"))) ? (now - started) / 1_000_000L : 0;
+                    streamReply(ws, utterance, Math.max(0, firstTokenDelayMs - headStartMs));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /** Send the reply to `utterance` as llm_delta chunks on the LLM timer (first one after `firstDelayMs`), then llm_done. */
+    private void streamReply(WebSocket ws, String utterance, long firstDelayMs) {
+        final String   id    = "r-" + (++replyId);
+        final String[] words = replyFor(utterance).split(" ");
+        final List<ScheduledFuture<?>> futures = new ArrayList<>();
+        streams.put(id, futures);
+        long at = firstDelayMs;
+        for (int i = 0; i < words.length; i += wordsPerChunk) {
+            final StringBuilder chunk = new StringBuilder();
+            for (int j = i; j < Math.min(words.length, i + wordsPerChunk); j++) { chunk.append(words[j]).append(' '); }
+            final String  data  = chunk.toString();
+            final boolean first = (i == 0);
+            futures.add(llm.schedule(() -> {
+                if (first) { firstTokenAt.put(utterance, System.nanoTime()); }
+                ws.send(new JSONObject().put("type", "llm_delta").put("id", id).put("data", data).put("server_seq", ++serverSeq).toString());
+            }, at, TimeUnit.MILLISECONDS));
+            at += chunkIntervalMs;
+        }
+        futures.add(llm.schedule(() -> {
+            streams.remove(id);
+            ws.send(new JSONObject().put("type", "llm_done").put("id", id).put("server_seq", ++serverSeq).toString());
+        }, at, TimeUnit.MILLISECONDS));
+    }
+
+}
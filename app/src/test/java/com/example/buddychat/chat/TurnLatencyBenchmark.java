@@ -0,0 +1,282 @@
+package com.example.buddychat.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.bfr.buddy.ui.shared.LabialExpression;
+import com.example.buddychat.network.BackendURLs;
+import com.example.buddychat.network.NetworkTimings;
+import com.example.buddychat.network.api.TokenManager;
+import com.example.buddychat.network.ws.ChatSocketManager;
+import com.example.buddychat.network.ws.ConnectionState;
+import com.example.buddychat.stt.BargeIn;
+import com.example.buddychat.stt.STTCallbacks;
+import com.example.buddychat.tts.BuddyTTS;
+import com.example.buddychat.tts.TTSEngine;
+import com.example.buddychat.utils.ThreadUtils;
+import com.example.buddychat.utils.behavior.BehaviorTasks;
+import com.example.buddychat.utils.behavior.BehaviorTasks.Behavior;
+import com.example.buddychat.utils.metrics.LatencyStats;
+
+/**
+ * Headless end-to-end turns: STTCallbacks.onText -> ChatSocketManager -> FakeBackend -> MessageHandler ->
+ * SentenceAssembler -> BuddyTTS, on a plain JVM. The robot is replaced by a fake TTS engine (speaks at a fixed
+ * rate on its own thread), a fake behavior player (the wake-up BI finishes at once) and a single-thread "main"
+ * executor; face/motor calls are no-ops without the SDK. <br>
+ * One chat is opened for the class; each test checks one behavior with its own STTCallbacks (so its own coalescer)
+ * and only asserts on what reached the backend and what was spoken. Latency percentiles are printed, never
+ * asserted: wall-clock budgets would flake on a loaded machine. <br>
+ * Opt-in (it starts a MockWebServer and runs for a while), skipped unless the "benchmarks" property is set.
+ * Run with: ./gradlew :app:testDebugUnitTest -Pbenchmarks --tests '*TurnLatencyBenchmark*' -i
+ */
+public class TurnLatencyBenchmark {
+
+    private static final boolean ENABLED = Boolean.getBoolean("benchmarks"); // see build.gradle
+
+    private static final int  WARMUP_TURNS     = 3;
+    private static final int  MEASURED_TURNS   = 20;
+    private static final long MS_PER_CHAR      = 2;     // fake speech rate (~10x faster than real, keeps the run short)
+    private static final long TURN_TIMEOUT_MS  = 10_000;
+    private static final long CLIENT_BUDGET_MS = 400;   // reported: time from the first LLM token to the first audio
+    private static final long FRAGMENT_GAP_MS  = 200;   // pause inside a sentence that the recognizer splits into two results
+    private static final int  FRAGMENTED_TURNS = 5;
+    private static final long BARGE_MS_PER_CHAR = 20;   // real-time speech for the barge-in turn, so there is time to talk over it
+    private static final long THINK_MS         = 150;   // user pause before each turn (lets llm_done land and STT resume, as on the robot)
+    private static final String LAST_SENTENCE  = "when you are ready."; // FakeBackend ends every reply with it
+
+    private static final FakeBackend BACKEND = new FakeBackend();
+    private static final ExecutorService          MAIN    = Executors.newSingleThreadExecutor(r -> new Thread(r, "fake-main"));
+    private static final ScheduledExecutorService SPEAKER = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "fake-tts"));
+
+    // What the fake TTS engine did: (text, nanoTime) when each utterance started and finished
+    private static final BlockingQueue<Object[]> STARTED  = new LinkedBlockingQueue<>();
+    private static final BlockingQueue<Object[]> FINISHED = new LinkedBlockingQueue<>();
+    private static volatile long msPerChar = MS_PER_CHAR;
+
+    // Behaviors the fake player was asked for; the wake-up finishes right away, sleep loops (no callback)
+    private static final List<Behavior> BEHAVIORS = new CopyOnWriteArrayList<>();
+    private static final BehaviorTasks.Player FAKE_PLAYER = (mode, onDone) -> {
+        BEHAVIORS.add(mode);
+        ThreadUtils.runOnUiThread(onDone);
+    };
+
+    private static final TTSEngine FAKE_TTS = new TTSEngine() {
+        @Override public boolean isReady() { return true; }
+        @Override public void    stop   () { }
+        @Override public void    speak  (String text, LabialExpression expression, Runnable onDone) {
+            STARTED.add(new Object[] { text, System.nanoTime() });
+            SPEAKER.schedule(() -> { final long at = System.nanoTime(); onDone.run(); FINISHED.add(new Object[] { text, at }); },
+                    text.length() * msPerChar, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    private STTCallbacks stt;
+
+    // --------------------------------------------------------------------------------
+    // Setup: login, then touch -> greeting finished (one chat for every test)
+    // --------------------------------------------------------------------------------
+    @BeforeClass public static void setUp() throws Exception {
+        assumeTrue("wall-clock benchmark; run with -Pbenchmarks", ENABLED);
+        BackendURLs.setBaseOverride(BACKEND.start());
+        ThreadUtils.setMainExecutor(MAIN);
+        BuddyTTS.setEngine(FAKE_TTS);
+        BehaviorTasks.setPlayer(FAKE_PLAYER);
+
+        long t0 = System.nanoTime();
+        assertNotNull(TokenManager.ensureToken().get(5, TimeUnit.SECONDS));
+        final long loginMs = msSince(t0);
+
+        t0 = System.nanoTime();
+        MAIN.execute(StatusController::start);
+        assertNotNull("greeting never finished", awaitFinished("How are you doing today?", t0));
+        System.out.println(String.format(Locale.US, "login=%d ms, touch->greeting done=%d ms", loginMs, msSince(t0)));
+        assertEquals(ConnectionState.OPEN, ChatSocketManager.getState());
+        assertEquals(Behavior.WAKE, BEHAVIORS.get(0));
+    }
+
+    @AfterClass public static void tearDown() throws Exception {
+        if (!ENABLED) { return; }
+        System.out.println("Network: " + NetworkTimings.dump());
+        System.out.println("Turns: "   + TurnTracer.dump());
+        StatusController.stop();
+        BuddyTTS.setEngine(null);
+        BehaviorTasks.setPlayer(null);
+        ThreadUtils.setMainExecutor(null);
+        BackendURLs.setBaseOverride(null);
+        BACKEND.shutdown();
+        MAIN.shutdownNow();
+        SPEAKER.shutdownNow();
+    }
+
+    @Before public void reset() {
+        STARTED.clear(); FINISHED.clear();
+        msPerChar = MS_PER_CHAR;
+        BargeIn.setEnabled(false);
+        stt = new STTCallbacks(ChatSocketManager::sendString, ChatSocketManager::sendPartial);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Conversation turns (latency report)
+    // --------------------------------------------------------------------------------
+    @Test public void conversationTurns() throws Exception {
+        final LatencyStats uplink     = new LatencyStats("uplink",      MEASURED_TURNS); // onText -> backend received it
+        final LatencyStats firstAudio = new LatencyStats("first_audio", MEASURED_TURNS); // onText -> first sentence starts speaking
+        final LatencyStats afterLlm   = new LatencyStats("after_llm",   MEASURED_TURNS); // first LLM token sent -> first audio (waiting for a full sentence + our dispatch)
+        final LatencyStats turn       = new LatencyStats("turn",        MEASURED_TURNS); // onText -> last sentence finished
+
+        for (int i = 0; i < WARMUP_TURNS + MEASURED_TURNS; i++) {
+            final String utterance = "I planted tomatoes in row " + i;
+            final long start = say(utterance);                // STT delivers on a binder thread, not main
+            final Long doneAt = awaitFinished(LAST_SENTENCE, start);
+            assertNotNull("turn " + i + " never finished", doneAt);
+            assertTrue("utterance not sent as-is: " + utterance, BACKEND.receivedAt.containsKey(utterance));
+            if (i < WARMUP_TURNS) { continue; }
+
+            final Object[] first = STARTED.peek();
+            uplink    .record((BACKEND.receivedAt.get(utterance) - start) / 1_000_000L);
+            firstAudio.record(((Long) first[1] - start) / 1_000_000L);
+            afterLlm  .record(((Long) first[1] - BACKEND.firstTokenAt.get(utterance)) / 1_000_000L);
+            turn      .record((doneAt - start) / 1_000_000L);
+        }
+        assertEquals(MEASURED_TURNS, turn.size());
+
+        System.out.println(String.format(Locale.US, "LLM first token delay=%d ms, chunk interval=%d ms, speech=%d ms/char",
+                BACKEND.firstTokenDelayMs, BACKEND.chunkIntervalMs, MS_PER_CHAR));
+        for (LatencyStats s : new LatencyStats[] { uplink, firstAudio, afterLlm, turn }) { System.out.println("  " + s.summary()); }
+        System.out.println(String.format(Locale.US, "  after_llm p90 %d ms (budget %d); first_audio p50 %d ms vs uplink p50 + first token %d ms (speculation)",
+                afterLlm.percentile(90), CLIENT_BUDGET_MS, firstAudio.percentile(50), uplink.percentile(50) + BACKEND.firstTokenDelayMs));
+    }
+
+    // --------------------------------------------------------------------------------
+    // Quick answers: a short complete reply goes out on its own, unmerged
+    // --------------------------------------------------------------------------------
+    @Test public void quickAnswersAreSentAsIs() throws Exception {
+        final String[]     answers = { "Yes please", "No thanks", "Thank you", "No worries", "Yes I do" };
+        final LatencyStats quick   = new LatencyStats("quick_uplink", answers.length);
+        for (String answer : answers) {
+            final long start = say(answer);
+            assertNotNull("quick turn \"" + answer + "\" never finished", awaitFinished(LAST_SENTENCE, start));
+            assertTrue("quick answer not sent as-is: " + answer, BACKEND.receivedAt.containsKey(answer));
+            quick.record((BACKEND.receivedAt.get(answer) - start) / 1_000_000L);
+        }
+        System.out.println("  " + quick.summary());
+    }
+
+    // --------------------------------------------------------------------------------
+    // Merging: one sentence split into two results reaches the backend as one transcription
+    // --------------------------------------------------------------------------------
+    @Test public void fragmentsAreMerged() throws Exception {
+        final int before = BACKEND.transcriptions.get();
+        for (int i = 0; i < FRAGMENTED_TURNS; i++) {
+            final long start = say("We picked the last of the"); // ends mid-sentence, so the hold is the long one
+            Thread.sleep(FRAGMENT_GAP_MS);
+            stt.onText("beans in row " + i, 0.9f, "free");
+            assertNotNull("fragmented turn " + i + " never finished", awaitFinished(LAST_SENTENCE, start));
+            assertTrue("fragments were not merged", BACKEND.receivedAt.containsKey("We picked the last of the beans in row " + i));
+        }
+        assertEquals("fragments caused extra LLM turns", FRAGMENTED_TURNS, BACKEND.transcriptions.get() - before);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Barge-in: the user talks over the first sentence; Buddy stops and the backend stops streaming
+    // --------------------------------------------------------------------------------
+    @Test public void bargeInCancelsTheReply() throws Exception {
+        BargeIn.setEnabled(true); // off by default on the robot
+        msPerChar = BARGE_MS_PER_CHAR;
+        final int cancelsBefore = BACKEND.cancels.get();
+        say("How are my roses doing");
+        assertNotNull("reply never started", STARTED.poll(TURN_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        msPerChar = MS_PER_CHAR;
+
+        final long bargeAt = System.nanoTime();
+        stt.onText("Actually wait a second", 0.9f, "free");
+        assertNotNull("barge-in turn never finished", awaitFinished(LAST_SENTENCE, bargeAt));
+        assertEquals("backend was not told to cancel", cancelsBefore + 1, BACKEND.cancels.get());
+        assertTrue("barge-in utterance not sent", BACKEND.receivedAt.containsKey("Actually wait a second"));
+        for (Object[] s : STARTED) { assertFalse("cancelled reply kept talking: " + s[0], ((String) s[0]).contains("roses. That sounds")); }
+    }
+
+    // --------------------------------------------------------------------------------
+    // Self-echo: right after Buddy stops, the recognizer delivers the tail of its last sentence (alone, then glued to the user's words)
+    // --------------------------------------------------------------------------------
+    @Test public void selfEchoIsDroppedAndTrimmed() throws Exception {
+        final long start = say("I watered the lawn");
+        assertNotNull("turn never finished", awaitFinished(LAST_SENTENCE, start));
+
+        final int before = BACKEND.transcriptions.get();
+        final long echoAt = System.nanoTime(); // still inside the echo tail
+        stt.onText("when you are ready", 0.9f, "free");
+        stt.onText("about it when you are ready can you water the plants", 0.9f, "free");
+        assertNotNull("turn after the echo never finished", awaitFinished(LAST_SENTENCE, echoAt));
+        assertTrue("echo was not trimmed", BACKEND.receivedAt.containsKey("can you water the plants"));
+        assertEquals("echo reached the backend", before + 1, BACKEND.transcriptions.get());
+    }
+
+    // --------------------------------------------------------------------------------
+    // Tracing: every finished turn is closed by TurnTracer
+    // --------------------------------------------------------------------------------
+    @Test public void turnsAreTraced() throws Exception {
+        final long before = TurnTracer.completedTurns();
+        for (int i = 0; i < 3; i++) {
+            final long start = say("My sister visits on day " + i);
+            assertNotNull("turn " + i + " never finished", awaitFinished(LAST_SENTENCE, start));
+        }
+        assertTrue("turns were not traced end to end: " + TurnTracer.dump(), awaitTrue(() -> TurnTracer.completedTurns() >= before + 3));
+    }
+
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
+    /** Wait until the fake TTS finishes an utterance ending with `suffix`; returns its finish time (null on timeout). */
+    private static Long awaitFinished(String suffix, long since) throws InterruptedException {
+        final long deadline = since + TURN_TIMEOUT_MS * 1_000_000L;
+        while (true) {
+            final long left = deadline - System.nanoTime();
+            if (left <= 0) { return null; }
+            final Object[] done = FINISHED.poll(left, TimeUnit.NANOSECONDS);
+            if (done == null) { return null; }
+            if (((String) done[0]).trim().endsWith(suffix)) { return (Long) done[1]; }
+        }
+    }
+
+    /** Pause like a user, then deliver one recognizer result; returns when it was delivered. */
+    private long say(String text) throws InterruptedException {
+        Thread.sleep(THINK_MS);
+        STARTED.clear(); FINISHED.clear();
+        final long start = System.nanoTime();
+        stt.onText(text, 0.9f, "free");
+        return start;
+    }
+
+    /** Poll `condition` until it holds (Done callbacks run on the fake main thread, after FINISHED is written). */
+    private static boolean awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TURN_TIMEOUT_MS * 1_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) { return false; }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static long msSince(long t0) { return (System.nanoTime() - t0) / 1_000_000L; }
+
+}
@@ -0,0 +1,172 @@
+package com.example.buddychat.network.ws.codec;
+
+import static com.example.buddychat.MicroBench.MEASURE_ROUNDS;
+import static com.example.buddychat.MicroBench.WARMUP_ROUNDS;
+import static com.example.buddychat.MicroBench.allocatedBytes;
+import static com.example.buddychat.MicroBench.measure;
+import static com.example.buddychat.MicroBench.sink;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.example.buddychat.MicroBench.Result;
+
+/**
+ * JVM benchmark: FrameCodec (single-pass offset scanner + handler registry) vs. the previous
+ * MessageHandler path (org.json DOM + switch on "type"). Both sides read the same fields the
+ * real handlers read. Run with: ./gradlew :app:testDebugUnitTest --tests '*FrameCodecBenchmark*' -i
+ */
+public class FrameCodecBenchmark {
+
+    // A realistic mix: lots of high-frequency affect/delta frames, the occasional full response
+    private static final String[] FRAMES = {
+            "{\"type\":\"affect\",\"valence\":0.62,\"arousal\":0.41,\"time\":\"12:01:02\"}",
+            "{\"type\":\"llm_delta\",\"id\":\"r-17\",\"data\":\"That sounds like a lovely \"}",
+            "{\"type\":\"llm_delta\",\"id\":\"r-17\",\"data\":\"afternoon in the garden. \"}",
+            "{\"type\":\"ack\",\"seq\":1234}",
+            "{\"type\":\"pong\",\"id\":88}",
+            "{\"type\":\"expression\",\"expression\":\"HAPPY\"}",
+            "{\"type\":\"llm_response\",\"time\":\"12:01:05\",\"data\":\"Of course! I remember you told me about your roses last week. Did the new ones bloom yet? I would love to hear about them.\"}",
+            "{\"type\":\"llm_done\",\"id\":\"r-17\",\"time\":\"12:01:06\"}",
+    };
+
+    // --------------------------------------------------------------------------------
+    // Correctness (the codec must see the same values org.json does)
+    // --------------------------------------------------------------------------------
+    @Test public void decodesSameFieldsAsOrgJson() throws Exception {
+        final String[] copy = new String[3];
+        FrameCodec codec = new FrameCodec().register("affect", f -> {
+            copy[0] = f.type(); copy[1] = f.getString("valence", ""); copy[2] = f.getString("time", "");
+            assertEquals(0.62, f.getDouble("valence", 0), 1e-9);
+            assertEquals(0.41, f.getDouble("arousal", 0), 1e-9);
+        }).register("ack", f -> assertEquals(1234L, f.getLong("seq", -1)));
+
+        assertTrue(codec.dispatch(FRAMES[0]));
+        assertTrue(codec.dispatch(FRAMES[3]));
+        JSONObject obj = new JSONObject(FRAMES[0]);
+        assertEquals(obj.optString("type"), copy[0]);
+        assertEquals(obj.optString("time"), copy[2]);
+        assertEquals(obj.optDouble("valence"), Double.parseDouble(copy[1]), 1e-9);
+    }
+
+    @Test public void typeNotFirstStillDispatches() {
+        final String[] got = new String[1];
+        FrameCodec codec = new FrameCodec().register("expression", f -> got[0] = f.getString("expression", "?"));
+        assertTrue(codec.dispatch("{\"expression\":\"SAD\",\"nested\":{\"a\":[1,\"}\"]},\"type\":\"expression\"}"));
+        assertEquals("SAD", got[0]);
+    }
+
+    @Test public void unescapesStrings() {
+        final String[] got = new String[1];
+        FrameCodec codec = new FrameCodec().register("llm_response", f -> got[0] = f.getString("data", null));
+        assertTrue(codec.dispatch("{\"type\":\"llm_response\",\"data\":\"She said \\\"hi\\\"\\n caf\\u00e9\"}"));
+        assertEquals("She said \"hi\"\n caf\u00e9", got[0]);
+    }
+
+    @Test public void malformedAndUnknownFramesAreRejected() {
+        FrameCodec codec = new FrameCodec().register("ack", f -> { });
+        assertFalse(codec.dispatch("{\"type\":\"ack\","));
+        assertFalse(codec.dispatch("{\"type\":\"unknown\",\"data\":\"x\"}"));
+        assertFalse(codec.dispatch("not json"));
+    }
+
+    @Test public void badEscapesLiteralsAndTrailingDataAreRejected() {
+        final String[] got = new String[1];
+        FrameCodec codec = new FrameCodec().register("ack", f -> got[0] = f.getString("data", null) + f.getLong("seq", -1));
+        assertFalse(codec.dispatch("{\"type\":\"ack\",\"data\":\"caf\\uzz12\"}"));  // not hex
+        assertFalse(codec.dispatch("{\"type\":\"ack\",\"data\":\"cut \\u12\"}"));    // cut off
+        assertFalse(codec.dispatch("{\"type\":\"ack\",\"data\":\"\\q\"}"));          // unknown escape
+        assertFalse(codec.dispatch("{\"type\":\"ack\",\"ok\":tru}"));
+        assertFalse(codec.dispatch("{\"type\":\"ack\",\"seq\":12ab}"));
+        assertFalse(codec.dispatch("{\"type\":\"ack\",\"seq\":-}"));
+        assertFalse(codec.dispatch("{\"type\":\"ack\"} garbage"));
+        assertFalse(codec.dispatch("{} x"));
+        assertEquals(null, got[0]);
+
+        assertTrue(codec.dispatch("{\"type\":\"ack\",\"ok\":true,\"seq\":-1.5e2,\"data\":\"\\u00e9\"} \n"));
+        assertEquals("\u00e9-150", got[0]);
+    }
+
+    @Test public void handlerExceptionsAreContained() {
+        FrameCodec codec = new FrameCodec().register("ack", f -> { throw new IllegalStateException("boom"); });
+        assertFalse(codec.dispatch("{\"type\":\"ack\"}"));
+    }
+
+    @Test public void binaryFramesDecodeLikeJson() {
+        final String[] got = new String[2];
+        final long[]   seq = new long[1];
+        FrameCodec codec = new FrameCodec()
+                .register("llm_response", f -> { got[0] = f.getString("data", null); got[1] = f.getString("time", null); })
+                .register("affect",       f -> { assertEquals(0.62, f.getDouble("valence", 0), 1e-9); assertEquals(0.5, f.getDouble("arousal", 0), 1e-9); })
+                .register("ack",          f -> seq[0] = f.getLong("seq", -1));
+
+        assertTrue(codec.dispatch(BinaryFrames.encode(new JSONObject(FRAMES[6]))));
+        assertEquals(new JSONObject(FRAMES[6]).getString("data"), got[0]);
+        assertEquals("12:01:05", got[1]);
+        assertTrue(codec.dispatch(BinaryFrames.encode(new JSONObject().put("type", "affect").put("valence", 0.62).put("arousal", 0.5))));
+        assertTrue(codec.dispatch(BinaryFrames.encode(new JSONObject().put("type", "ack").put("seq", 70_000L).put("extra", new JSONObject().put("a", 1)))));
+        assertEquals(70_000L, seq[0]);
+        assertTrue(codec.dispatch(BinaryFrames.encode(new JSONObject().put("type", "ack").put("seq", -3))));
+        assertEquals(-3L, seq[0]);
+
+        assertFalse(codec.dispatch(new byte[] { 9, (byte) 0xa0 }));       // unknown schema version
+        assertFalse(codec.dispatch(new byte[] { BinaryFrames.VERSION, (byte) 0xa1, 0x00, 0x65, 'a' })); // truncated
+    }
+
+    @Test public void binaryFramesAreSmaller() throws Exception {
+        long json = 0, binary = 0;
+        for (String raw : FRAMES) { json += raw.getBytes("UTF-8").length; binary += BinaryFrames.encode(new JSONObject(raw)).length; }
+        System.out.println(String.format(Locale.US, "wire bytes for the frame mix: json=%d, binary=%d (%.0f%%)", json, binary, 100.0 * binary / json));
+        assertTrue(binary < json);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Benchmark
+    // --------------------------------------------------------------------------------
+    @Test public void benchmarkCodecVsOrgJson() throws Exception {
+        final FrameCodec codec = newCodec();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) { runOrgJson(FRAMES[i % FRAMES.length]); codec.dispatch(FRAMES[i % FRAMES.length]); }
+
+        final Result json  = measure("org.json DOM", "frame", () -> { for (int i = 0; i < MEASURE_ROUNDS; i++) runOrgJson(FRAMES[i % FRAMES.length]); });
+        final Result codecR = measure("FrameCodec",  "frame", () -> { for (int i = 0; i < MEASURE_ROUNDS; i++) codec.dispatch(FRAMES[i % FRAMES.length]); });
+
+        System.out.println(json);
+        System.out.println(codecR);
+        System.out.println(String.format(Locale.US, "speedup x%.2f, allocation ratio %.2f",
+                json.nsPerOp / codecR.nsPerOp, codecR.bytesPerOp / Math.max(1.0, json.bytesPerOp)));
+    }
+
+    private static FrameCodec newCodec() {
+        final FrameHandler text   = f -> sink += f.getString("data", "").length() + f.getString("id", "").length();
+        final FrameHandler affect = f -> sink += f.getDouble("valence", 0.5) + f.getDouble("arousal", 0.5);
+        return new FrameCodec()
+                .register("llm_response", text)
+                .register("llm_delta",    text)
+                .register("llm_done",     f -> sink += f.getString("id", "").length())
+                .register("affect",       affect)
+                .register("expression",   f -> sink += f.getString("expression", "NEUTRAL").length())
+                .register("ack",          f -> sink += f.getLong("seq", -1))
+                .register("pong",         f -> sink += f.getLong("id", -1));
+    }
+
+    /** The pre-codec MessageHandler path: JSONObject DOM + string switch. */
+    private static void runOrgJson(String raw) throws Exception {
+        JSONObject obj = new JSONObject(raw);
+        switch (obj.optString("type", "")) {
+            case "llm_response":
+            case "llm_delta"   : sink += obj.optString("data", "").length() + obj.optString("id", "").length(); break;
+            case "llm_done"    : sink += obj.optString("id", "").length(); break;
+            case "affect"      : sink += obj.optDouble("valence", 0.5) + obj.optDouble("arousal", 0.5); break;
+            case "expression"  : sink += obj.optString("expression", "NEUTRAL").length(); break;
+            case "ack"         : sink += obj.optLong("seq", -1); break;
+            case "pong"        : sink += obj.optLong("id", -1); break;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.example.buddychat.stt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * EchoFilter on a plain JVM: what Buddy says is remembered with onSpoken(), then results are matched
+ * as if Buddy were still talking (all recent utterances) or had just stopped (the last one only).
+ * Run with: ./gradlew :app:testDebugUnitTest --tests '*EchoFilterTest*'
+ */
+public class EchoFilterTest {
+
+    @Before public void setUp() {
+        EchoFilter.clear();
+        EchoFilter.onSpoken("Do you want to hear about the garden?");
+        EchoFilter.onSpoken("Are you ready? Just say yes or no, and tell me when you are ready.");
+    }
+
+    @Test public void shortAnswersAreNeverEcho() {
+        for (String answer : new String[] { "yes", "No", "yes I am", "are you", "do you", "Are you sure", "do you know", "when you can" }) {
+            assertEquals(answer, EchoFilter.match(answer, false));
+            assertEquals(answer, EchoFilter.match(answer, true));
+        }
+    }
+
+    @Test public void buddysOwnWordsAreDropped() {
+        assertNull(EchoFilter.match("tell me when you are ready", false));
+        assertNull(EchoFilter.match("when you are ready", true));
+        assertNull(EchoFilter.match("hear about the garden", false)); // the previous utterance, while talking
+    }
+
+    @Test public void echoTailIsTrimmed() {
+        assertEquals("can you water the plants", EchoFilter.match("me when you are ready can you water the plants", true));
+    }
+
+    @Test public void olderUtterancesAreNotChecked() {
+        EchoFilter.onSpoken("Okay.");
+        assertEquals("hear about the garden", EchoFilter.match("hear about the garden", false)); // two utterances back
+        assertEquals("when you are ready",    EchoFilter.match("when you are ready", true));    // not the last one
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.example.buddychat.utils.behavior;
+
+import static com.example.buddychat.MicroBench.MEASURE_ROUNDS;
+import static com.example.buddychat.MicroBench.WARMUP_ROUNDS;
+import static com.example.buddychat.MicroBench.allocatedBytes;
+import static com.example.buddychat.MicroBench.measure;
+import static com.example.buddychat.MicroBench.sink;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.example.buddychat.MicroBench.Result;
+import com.example.buddychat.utils.behavior.IntentDetector.Intent;
+
+/**
+ * JVM benchmark: IntentDetector.openingIntent (what replies go through) vs. the previous four regex scans
+ * (APOLOGY, NEGATE, REASSURE, AFFIRM, tried in that order), both anchored at the start of the text.
+ * Long LLM-style responses, with the intent phrase at the start, later, or missing. Run with:
+ * ./gradlew :app:testDebugUnitTest --tests '*IntentDetectorBenchmark*' -i
+ */
+public class IntentDetectorBenchmark {
+
+    private static final String FILLER = "I remember you told me about the roses along the fence last spring, and how the "
+            + "neighbours' cat kept digging in the flower bed every morning before the sun came up over the hill. ";
+
+    private static final String[] RESPONSES = {
+            "Of course! " + FILLER + FILLER + "Did the new ones bloom yet? I would love to hear about them.",
+            FILLER + FILLER + FILLER + "I'm sorry, I didn't catch the name of the variety you planted.",
+            FILLER + FILLER + FILLER + FILLER + "Tell me more about the garden when you have a moment.",
+            "That sounds lovely. " + FILLER + "No worries if you don't remember the exact day. " + FILLER,
+    };
+
+    // Reply openers for the old/new agreement check
+    private static final String[] OPENERS = {
+            "Yes, I remember.", "Yeah, that sounds fun.", "Yep!", "Sure thing!", "Of course, here it is.", "Absolutely.",
+            "Right, the roses.", "Certainly not.", "Indeed it is.", "Correct!", "Nope.", "Nah.", "No, I don't think so.",
+            "  ...  no way", "Never mind that.", "Wrong answer.", "No worries, take your time.", "No problem at all.",
+            "No big deal.", "All good here.", "It's okay to forget.", "That's fine.", "You're welcome!",
+            "Thank you for telling me.", "Thanks!", "Great question.", "Awesome!", "I'm sorry to hear that.", "I am sorry.",
+            "Sorry, what was that?", "My bad.", "I apologize for the confusion.", "Pardon?", "I can't do that.",
+            "I cannot say.", "I won't forget.", "I'm unable to check the weather.", "Cannot compute.", "Well, maybe.",
+            "There is no rain today.", "I think so. Sorry.", "Hmm, yes.", "That's wrong.", "Surely you remember.",
+            "Yesterday was sunny.", "Nothing happened.", "Let me measure the bright window.",
+    };
+
+    // --------------------------------------------------------------------------------
+    // Correctness
+    // --------------------------------------------------------------------------------
+    @Test public void picksTheLeftmostPhrase() {
+        assertEquals(Intent.AFFIRM,   IntentDetector.classify("Sure, but I'm sorry it took so long."));
+        assertEquals(Intent.APOLOGY,  IntentDetector.classify("I'm sorry, that's wrong."));
+        assertEquals(Intent.APOLOGY,  IntentDetector.classify("Well, I can't say for certain."));
+        assertEquals(Intent.REASSURE, IntentDetector.classify("Hmm. Thank you, yes."));
+        assertEquals(Intent.NEGATE,   IntentDetector.classify(RESPONSES[1].replace("I'm sorry", "Never mind")));
+        assertEquals(Intent.APOLOGY,  IntentDetector.classify(RESPONSES[1]));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.classify(RESPONSES[2]));
+    }
+
+    @Test public void tieBreakAtTheSameWord() {
+        assertEquals(Intent.REASSURE, IntentDetector.classify("No worries at all!"));
+        assertEquals(Intent.REASSURE, IntentDetector.classify("no problem"));
+        assertEquals(Intent.NEGATE,   IntentDetector.classify("No, not today."));
+        assertEquals(Intent.APOLOGY,  IntentDetector.classify("I am sorry"));
+    }
+
+    @Test public void openingIntentOnlyAtTheStart() {
+        assertEquals(Intent.UNKNOWN,  IntentDetector.openingIntent("There is no rain today."));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.openingIntent("I think so. Sorry."));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.openingIntent(RESPONSES[1]));
+        assertEquals(Intent.REASSURE, IntentDetector.openingIntent("No worries, take your time."));
+        assertEquals(Intent.NEGATE,   IntentDetector.openingIntent("No, not today."));
+        assertEquals(Intent.AFFIRM,   IntentDetector.openingIntent("...Of course!"));
+        assertEquals(Intent.AFFIRM,   IntentDetector.openingIntent(RESPONSES[0]));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.openingIntent(null));
+    }
+
+    /** Same answers as the old regexes, except the two documented changes: the tie-break ("No worries" is REASSURE,
+     * not NEGATE) and leading punctuation, which the old AFFIRM/NEGATE patterns didn't skip ("...no" is NEGATE). */
+    @Test public void openingIntentAgreesWithTheRegexes() {
+        int tieBreaks = 0, punctuation = 0;
+        for (String[] texts : new String[][] { OPENERS, RESPONSES }) {
+            for (String s : texts) {
+                final Intent before = Legacy.classify(s), now = IntentDetector.openingIntent(s);
+                if (before == Intent.NEGATE && now == Intent.REASSURE) {
+                    assertTrue(s, s.trim().toLowerCase(Locale.ROOT).startsWith("no "));
+                    tieBreaks++;
+                }
+                else if (before == Intent.UNKNOWN && (now == Intent.AFFIRM || now == Intent.NEGATE)) {
+                    assertTrue(s, s.trim().startsWith("."));
+                    punctuation++;
+                }
+                else { assertEquals(s, before, now); }
+            }
+        }
+        assertEquals(3, tieBreaks);
+        assertEquals(1, punctuation);
+    }
+
+    @Test public void yesNoHelpersOnlyLookAtTheStart() {
+        assertTrue (IntentDetector.isYes("Yes, please."));
+        assertTrue (IntentDetector.isNo ("No, thanks."));
+        assertFalse(IntentDetector.isNo ("I don't know, no idea"));
+        assertFalse(IntentDetector.isYes("I'm not sure"));
+        assertFalse(IntentDetector.isNo ("No worries"));
+    }
+
+    @Test public void matchesWholeWordsOnly() {
+        assertEquals(Intent.UNKNOWN,  IntentDetector.classify("Let me measure the bright window."));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.classify("Nothing happened to Hannah."));
+        assertEquals(Intent.NEGATE,   IntentDetector.classify("...nope."));
+        assertEquals(Intent.REASSURE, IntentDetector.classify("It’s fine")); // curly apostrophe
+        assertEquals(Intent.APOLOGY,  IntentDetector.classify("I   CAN'T   do that"));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.classify("café sureé"));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.classify(""));
+        assertEquals(Intent.UNKNOWN,  IntentDetector.classify(null));
+    }
+
+    @Test public void doesNotAllocate() {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) { sink += IntentDetector.classify(RESPONSES[i % RESPONSES.length]).ordinal(); }
+        final long before = allocatedBytes();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) { sink += IntentDetector.classify(RESPONSES[i % RESPONSES.length]).ordinal(); }
+        final long after = allocatedBytes();
+        if (before < 0) { return; } // not HotSpot
+        final double perCall = (after - before) / (double) MEASURE_ROUNDS;
+        System.out.println(String.format(Locale.US, "automaton allocation: %.3f B/call", perCall));
+        assertTrue(perCall < 1.0);
+    }
+
+    // --------------------------------------------------------------------------------
+    // Benchmark
+    // --------------------------------------------------------------------------------
+    @Test public void benchmarkAutomatonVsRegex() throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += Legacy.classify(RESPONSES[i % RESPONSES.length]).ordinal();
+            sink += IntentDetector.openingIntent(RESPONSES[i % RESPONSES.length]).ordinal();
+        }
+
+        final Result regex     = measure("4x regex",  "response", () -> { for (int i = 0; i < MEASURE_ROUNDS; i++) sink += Legacy.classify(RESPONSES[i % RESPONSES.length]).ordinal(); });
+        final Result automaton = measure("automaton", "response", () -> { for (int i = 0; i < MEASURE_ROUNDS; i++) sink += IntentDetector.openingIntent(RESPONSES[i % RESPONSES.length]).ordinal(); });
+
+        long chars = 0;
+        for (String r : RESPONSES) { chars += r.length(); }
+        System.out.println(String.format(Locale.US, "responses: %d, avg %d chars", RESPONSES.length, chars / RESPONSES.length));
+        System.out.println(regex);
+        System.out.println(automaton);
+        System.out.println(String.format(Locale.US, "speedup x%.2f", regex.nsPerOp / automaton.nsPerOp));
+    }
+
+    /** The previous IntentDetector.classify, kept here as the baseline. One fix: the AFFIRM/NEGATE alternatives are
+     * grouped. Ungrouped, only the first one ("yes"/"no") was anchored, so e.g. "wrong" matched anywhere and "nah"
+     * matched inside "Hannah", which no caller meant. */
+    private static final class Legacy {
+        private static final String AFFIRM_SRC = "yes|y(?:ep|ea?h)|sure|of\\s+course|absolutely|affirmative|correct|indeed|right|certainly";
+        private static final String NEGATE_SRC = "no|nope|nah|negative|never|incorrect|wrong";
+        private static final String REASSURE_SRC =
+                "(?:no\\s+(?:worries|problem(?:s)?|big\\s+deal|sweat|trouble)\\b"
+                        + "|all\\s+good\\b"
+                        + "|it'?s\\s+(?:ok(?:ay)?|fine|alright)\\b"
+                        + "|that'?s\\s+(?:ok(?:ay)?|fine|alright)\\b"
+                        + "|you'?re\\s+fine\\b"
+                        + "|you(?:\\s*’|\\s*')?re\\s+welcome\\b|you\\s+are\\s+welcome\\b"
+                        + "|thank\\s+you\\b|thanks\\b|cheers\\b|great\\b|awesome\\b)";
+        private static final String APOLOGY_SRC =
+                "(?:i\\s*(?:am|['’]?m)\\s+sorry\\b"
+                        + "|sorry\\b|my\\s+bad\\b|i\\s+apologize\\b|apologies\\b|pardon\\b"
+                        + "|i\\s+(?:can(?:not|\\s*not|\\'?t)|won'?t|shouldn'?t)\\b"
+                        + "|i(?:\\s*’|\\s*')?m\\s+(?:unable|not\\s+able)\\b"
+                        + "|won'?t\\s+be\\s+able\\s+to\\b"
+                        + "|can(?:not|\\'?t)\\b)";
+        private static final String LEAD  = "^\\s*[\\p{Punct}\\s]*";
+        private static final String TAIL  = "[\\p{Punct}\\s]*$?";
+        private static final int    FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+        private static final Pattern REASSURE = Pattern.compile(LEAD + REASSURE_SRC + TAIL, FLAGS);
+        private static final Pattern APOLOGY  = Pattern.compile(LEAD +  APOLOGY_SRC + TAIL, FLAGS);
+        private static final Pattern AFFIRM   = Pattern.compile("^\\s*(?:" + AFFIRM_SRC + ")\\b[\\p{Punct}\\s]*", FLAGS);
+        private static final Pattern NEGATE   = Pattern.compile("^\\s*(?:" + NEGATE_SRC + ")\\b[\\p{Punct}\\s]*", FLAGS);
+
+        static Intent classify(String s) {
+            if (APOLOGY .matcher(s).find()) return Intent.APOLOGY;
+            if (NEGATE  .matcher(s).find()) return Intent.NEGATE;
+            if (REASSURE.matcher(s).find()) return Intent.REASSURE;
+            if (AFFIRM  .matcher(s).find()) return Intent.AFFIRM;
+            return Intent.UNKNOWN;
+        }
+    }
+
+}